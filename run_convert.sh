@@ -0,0 +1,4 @@
+# Program : run_convert.sh
+# Description : Convert an edge list to the binary CSR format, which all the other programs can load directly
+
+java -cp "./CoreScope-2.0.jar:./library/commons-math3-3.2.jar" corescope.Convert $@
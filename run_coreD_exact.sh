@@ -0,0 +1,4 @@
+# Program : run_coreD_exact.sh
+# Description : Compute the exact degeneracy in a few sequential passes, starting from the CoreD estimate
+
+java -cp "./CoreScope-2.0.jar:./library/commons-math3-3.2.jar:./library/fastutil-7.2.0.jar" corescope.singlepass.ExactDegeneracy $@
@@ -0,0 +1,4 @@
+# Program : run_coreD_window.sh
+# Description : Run CoreD over a sliding time window of a timestamped edge stream, reporting the estimates at a fixed interval
+
+java -cp "./CoreScope-2.0.jar:./library/commons-math3-3.2.jar:./library/fastutil-7.2.0.jar" corescope.singlepass.SlidingWindow $@
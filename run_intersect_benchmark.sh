@@ -0,0 +1,4 @@
+# Program : run_intersect_benchmark.sh
+# Description : Benchmark of the sorted-set intersection strategies on the adjacency lists of a graph
+
+java -cp "./CoreScope-2.0.jar:./library/commons-math3-3.2.jar" corescope.IntersectBenchmark $@
@@ -0,0 +1,4 @@
+# Program : run_semi_core.sh
+# Description : Core decomposition of a graph that does not fit in memory, streaming adjacency lists from disk
+
+java -cp "./CoreScope-2.0.jar:./library/commons-math3-3.2.jar" corescope.SemiExternalCore $@
@@ -0,0 +1,4 @@
+# Program : run_triangle_count.sh
+# Description : Exact triangle counting, writing the number of triangles containing each vertex
+
+java -cp "./CoreScope-2.0.jar:./library/commons-math3-3.2.jar" corescope.singlepass.TriangleCount $@
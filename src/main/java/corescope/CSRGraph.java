@@ -0,0 +1,196 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Graph in the binary CSR format, memory-mapped from a file
+ *
+ * File layout (big-endian):
+ * magic (int), version (int), number of vertices n (long), number of adjacency entries m (long),
+ * offsets (n+1 longs), neighbors (m ints, sorted within each vertex)
+ */
+public class CSRGraph {
+
+    /**
+     * "CSR1"
+     */
+    static final int MAGIC = 0x43535231;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 24;
+
+    private final int n;
+
+    private final long m;
+
+    /**
+     * vertex index -> position of its first neighbor
+     */
+    private final LongBuffer[] offsets;
+
+    /**
+     * concatenated adjacency lists
+     */
+    private final IntBuffer[] neighbors;
+
+    private CSRGraph(int n, long m, LongBuffer[] offsets, IntBuffer[] neighbors) {
+        this.n = n;
+        this.m = m;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * check whether the given file is in the binary CSR format
+     * @param path  path of the file
+     * @return true if the file starts with the CSR header
+     * @throws IOException
+     */
+    public static boolean isCSR(String path) throws IOException {
+        final DataInputStream in = new DataInputStream(new FileInputStream(path));
+        try {
+            return in.available() >= HEADER_SIZE && in.readInt() == MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * memory-map a graph in the binary CSR format
+     * @param path  path of the file
+     * @return mapped graph
+     * @throws IOException
+     */
+    public static CSRGraph open(String path) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            if(file.length() < HEADER_SIZE || file.readInt() != MAGIC) {
+                throw new IOException("not a CSR graph file: " + path);
+            }
+            final int version = file.readInt();
+            if(version != VERSION) {
+                throw new IOException("unsupported CSR version " + version + ": " + path);
+            }
+            final long n = file.readLong();
+            final long m = file.readLong();
+            if(n < 0 || n > Integer.MAX_VALUE || m < 0 || file.length() < neighborsPosition(n) + m * 4) {
+                throw new IOException("corrupted CSR graph file: " + path);
+            }
+            final FileChannel channel = file.getChannel();
+            final LongBuffer[] offsets = MappedArrays.mapLongs(channel, FileChannel.MapMode.READ_ONLY, HEADER_SIZE, n + 1);
+            final IntBuffer[] neighbors = MappedArrays.mapInts(channel, FileChannel.MapMode.READ_ONLY, neighborsPosition(n), m);
+            return new CSRGraph((int) n, m, offsets, neighbors);
+        } finally {
+            file.close(); // mappings remain valid after the file is closed
+        }
+    }
+
+    /**
+     * position (in bytes) of the neighbor array in a CSR file
+     * @param n number of vertices
+     * @return position of the neighbor array
+     */
+    static long neighborsPosition(long n) {
+        return HEADER_SIZE + (n + 1) * 8;
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int numNodes() {
+        return n;
+    }
+
+    /**
+     * @return number of adjacency entries (twice the number of undirected edges)
+     */
+    public long numEntries() {
+        return m;
+    }
+
+    /**
+     * @param v vertex index
+     * @return position of the first neighbor of v in the neighbor array
+     */
+    public long offset(int v) {
+        return MappedArrays.get(offsets, v);
+    }
+
+    /**
+     * @param v vertex index
+     * @return degree of v
+     */
+    public int degree(int v) {
+        return (int) (MappedArrays.get(offsets, v + 1) - MappedArrays.get(offsets, v));
+    }
+
+    /**
+     * @param pos   position in the neighbor array
+     * @return neighbor stored at the given position
+     */
+    public int neighbor(long pos) {
+        return MappedArrays.get(neighbors, pos);
+    }
+
+    /**
+     * copy the neighbors of a vertex
+     * @param v vertex index
+     * @param buffer    buffer whose length is at least the degree of v
+     * @return degree of v
+     */
+    public int neighbors(int v, int[] buffer) {
+        final long start = offset(v);
+        final int degree = (int) (offset(v + 1) - start);
+        MappedArrays.copy(neighbors, start, buffer, 0, degree);
+        return degree;
+    }
+
+    /**
+     * @param v vertex index
+     * @return sorted neighbors of v
+     */
+    public int[] neighbors(int v) {
+        final int[] result = new int[degree(v)];
+        neighbors(v, result);
+        return result;
+    }
+
+    /**
+     * copy the graph to the adjacency-list representation used by the algorithms
+     * @return graph (vertex index -> sorted neighbors)
+     */
+    public int[][] toAdjacencyLists() {
+        final int[][] graph = new int[n][];
+        long start = MappedArrays.get(offsets, 0);
+        for(int v=0; v<n; v++) {
+            final long end = MappedArrays.get(offsets, v + 1);
+            graph[v] = new int[(int) (end - start)];
+            MappedArrays.copy(neighbors, start, graph[v], 0, graph[v].length);
+            start = end;
+        }
+        return graph;
+    }
+
+}
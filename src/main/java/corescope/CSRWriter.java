@@ -0,0 +1,136 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Write a graph in the binary CSR format (see {@link CSRGraph})
+ * Adjacency lists are streamed in the order of vertex indices, so the graph never has to be in memory.
+ */
+public class CSRWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final int n;
+
+    /**
+     * number of vertices written so far
+     */
+    private int written = 0;
+
+    /**
+     * number of adjacency entries written so far
+     */
+    private long m = 0;
+
+    private long offsetPosition = CSRGraph.HEADER_SIZE;
+
+    private long neighborPosition;
+
+    private final ByteBuffer offsetBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final ByteBuffer neighborBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * @param path  path of the output file
+     * @param n number of vertices
+     * @throws IOException
+     */
+    public CSRWriter(String path, int n) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        this.file.setLength(0);
+        this.channel = file.getChannel();
+        this.n = n;
+        this.neighborPosition = CSRGraph.neighborsPosition(n);
+        offsetBuffer.putLong(0);
+    }
+
+    /**
+     * write the adjacency list of the next vertex
+     * @param neighbors array containing sorted neighbors
+     * @param from  index of the first neighbor in the array
+     * @param to    index after the last neighbor in the array
+     * @throws IOException
+     */
+    public void add(int[] neighbors, int from, int to) throws IOException {
+        if(written >= n) {
+            throw new IllegalStateException("more than " + n + " adjacency lists were written");
+        }
+        for(int i=from; i<to; i++) {
+            if(!neighborBuffer.hasRemaining()) {
+                neighborPosition = flush(neighborBuffer, neighborPosition);
+            }
+            neighborBuffer.putInt(neighbors[i]);
+        }
+        m += to - from;
+        written++;
+        if(!offsetBuffer.hasRemaining()) {
+            offsetPosition = flush(offsetBuffer, offsetPosition);
+        }
+        offsetBuffer.putLong(m);
+    }
+
+    /**
+     * write the header and close the file; vertices not written are stored as isolated vertices
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        while(written < n) {
+            add(null, 0, 0);
+        }
+        flush(offsetBuffer, offsetPosition);
+        flush(neighborBuffer, neighborPosition);
+        final ByteBuffer header = ByteBuffer.allocate(CSRGraph.HEADER_SIZE);
+        header.putInt(CSRGraph.MAGIC).putInt(CSRGraph.VERSION).putLong(n).putLong(m);
+        header.flip();
+        long position = 0;
+        while(header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        file.close();
+    }
+
+    private long flush(ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+    /**
+     * write an in-memory graph in the binary CSR format
+     * @param graph graph (vertex index -> sorted neighbors)
+     * @param path  path of the output file
+     * @throws IOException
+     */
+    public static void write(int[][] graph, String path) throws IOException {
+        final CSRWriter writer = new CSRWriter(path, graph.length);
+        for(int[] neighbors : graph) {
+            writer.add(neighbors, 0, neighbors.length);
+        }
+        writer.close();
+    }
+}
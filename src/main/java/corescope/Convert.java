@@ -0,0 +1,69 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.IOException;
+
+/**
+ * Convert an edge list to the binary CSR format
+ */
+public class Convert {
+
+    public static void main(String[] ar) throws IOException {
+
+        if(ar.length < 2) {
+            printError();
+            System.exit(-1);
+        }
+
+        String input = ar[0];
+        String output = ar[1];
+        String delim = "\t";
+
+        if(ar.length >= 3) {
+            if (ar[2].compareToIgnoreCase("tab") == 0) {
+                delim = "\t";
+            } else if (ar[2].compareToIgnoreCase("space") == 0){
+                delim = " ";
+            } else if(ar[2].compareToIgnoreCase("comma") == 0) {
+                delim = ",";
+            } else {
+                System.err.println("Unknown Delimeter");
+                printError();
+                System.exit(-1);
+            }
+        }
+
+        long memoryBudget = ExternalImport.defaultMemoryBudget();
+        if(ar.length >= 4) {
+            memoryBudget = Long.valueOf(ar[3]) << 20;
+        }
+        String tempDir = ar.length >= 5 ? ar[4] : ExternalImport.defaultTempDir();
+
+        System.err.println("Input Path: " + input);
+        System.err.println("Ouput Path: " + output);
+        System.err.println("Memory Budget: " + (memoryBudget >> 20) + "MB");
+        System.err.println("Temporary Directory: " + tempDir);
+
+        new ExternalImport(memoryBudget, tempDir, Parallel.defaultThreads(), true).toCSR(input, delim, output);
+        System.err.println("CSR graph was written.: "+ output);
+    }
+
+    public static void printError() {
+        System.err.println("Usage: run_convert.sh input_path output_path delimiter [memory_budget_mb] [temp_dir]");
+        System.err.println("delimiter should be one of [tab, space, comma]");
+    }
+}
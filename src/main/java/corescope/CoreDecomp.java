@@ -37,7 +37,7 @@ public class CoreDecomp {
         String output = ar[1];
         String delim = "\t";
 
-        if(ar.length == 3) {
+        if(ar.length >= 3) {
             if (ar[2].compareToIgnoreCase("tab") == 0) {
                 delim = "\t";
             } else if (ar[2].compareToIgnoreCase("space") == 0){
@@ -51,20 +51,71 @@ public class CoreDecomp {
             }
         }
 
+        int engine = ENGINE_BUCKET;
+        if(ar.length >= 4) {
+            if(ar[3].compareToIgnoreCase("bucket") == 0) {
+                engine = ENGINE_BUCKET;
+            } else if(ar[3].compareToIgnoreCase("naive") == 0) {
+                engine = ENGINE_NAIVE;
+            } else if(ar[3].compareToIgnoreCase("parallel") == 0) {
+                engine = ENGINE_PARALLEL;
+            } else if(ar[3].compareToIgnoreCase("hindex") == 0) {
+                engine = ENGINE_HINDEX;
+            } else {
+                System.err.println("Unknown Engine");
+                printError();
+                System.exit(-1);
+            }
+        }
+
+        final int threads = ar.length >= 5 ? Integer.valueOf(ar[4]) : Parallel.defaultThreads();
+        final long timeBudget = ar.length >= 6 ? Long.valueOf(ar[5]) : Long.MAX_VALUE;
+
         System.err.println("Input Path: " + input);
         System.err.println("Ouput Path: " + output);
         System.err.println("Delimeter: " + ar[2]);
 
         final int[][] graph = Import.loadLarge(input, delim);
-        export(CoreDecomp.run(graph, true), output, "\t");
+        if(engine == ENGINE_PARALLEL) {
+            export(ParallelCoreDecomp.run(graph, threads, true), output, "\t");
+        }
+        else if(engine == ENGINE_HINDEX) {
+            export(HIndexCore.run(graph, threads, Integer.MAX_VALUE, timeBudget, null, true), output, "\t");
+        }
+        else {
+            export(CoreDecomp.run(graph, true, engine), output, "\t");
+        }
 
     }
 
     public static void printError() {
-        System.err.println("Usage: run_core_decomp.sh input_path output_path delimiter");
+        System.err.println("Usage: run_core_decomp.sh input_path output_path delimiter [engine] [num_threads] [time_budget_ms]");
         System.err.println("delimiter should be one of [tab, space, comma]");
+        System.err.println("engine should be one of [bucket, naive, parallel, hindex] (default: bucket)");
+        System.err.println("num_threads is used by the parallel and hindex engines (default: number of processors)");
+        System.err.println("time_budget_ms makes the hindex engine output upper bounds of corenesses if it does not converge in time");
     }
 
+    /**
+     * Bucket-based peeling (Batagelj and Zaversnik), O(n+m)
+     */
+    public static final int ENGINE_BUCKET = 0;
+
+    /**
+     * Peeling that rescans the remaining vertices for each k
+     */
+    public static final int ENGINE_NAIVE = 1;
+
+    /**
+     * Level-synchronous parallel peeling on all processors (see {@link ParallelCoreDecomp})
+     */
+    public static final int ENGINE_PARALLEL = 2;
+
+    /**
+     * Asynchronous parallel iteration of h-indices until convergence (see {@link HIndexCore})
+     */
+    public static final int ENGINE_HINDEX = 3;
+
     /**
      * compute the corenesses of vertices in the given graph
      * @param graph input graph
@@ -72,6 +123,115 @@ public class CoreDecomp {
      * @return corenesses of vertices (vertex index -> coreness)
      */
     public static int[] run(int[][] graph, final boolean verbose) {
+        return run(graph, verbose, ENGINE_BUCKET);
+    }
+
+    /**
+     * compute the corenesses of vertices in the given graph
+     * @param graph input graph
+     * @param verbose whether to print progress
+     * @param engine    one of ENGINE_BUCKET, ENGINE_NAIVE, ENGINE_PARALLEL and ENGINE_HINDEX
+     * @return corenesses of vertices (vertex index -> coreness)
+     */
+    public static int[] run(int[][] graph, final boolean verbose, final int engine) {
+        if(engine == ENGINE_BUCKET) {
+            return runBucket(graph, verbose);
+        }
+        else if(engine == ENGINE_NAIVE) {
+            return runNaive(graph, verbose);
+        }
+        else if(engine == ENGINE_PARALLEL) {
+            return ParallelCoreDecomp.run(graph, Parallel.defaultThreads(), verbose);
+        }
+        else if(engine == ENGINE_HINDEX) {
+            return HIndexCore.run(graph, verbose);
+        }
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+
+    /**
+     * compute the corenesses of vertices by bucket-based peeling in O(n+m) time
+     * @param graph input graph
+     * @param verbose whether to print progress
+     * @return corenesses of vertices (vertex index -> coreness)
+     */
+    private static int[] runBucket(int[][] graph, final boolean verbose) {
+
+        if(verbose)
+            System.err.println("computing core decomposition...");
+
+        final int n = graph.length;
+        final int[] corenesses = new int[n]; // degree until the vertex is peeled
+        int maxDegree = 0;
+        for(int i=0; i<n; i++) {
+            corenesses[i] = graph[i].length;
+            maxDegree = Math.max(maxDegree, corenesses[i]);
+        }
+
+        // bin[d]: position of the first vertex with degree d in vert
+        final int[] bin = new int[maxDegree + 1];
+        for(int i=0; i<n; i++) {
+            bin[corenesses[i]]++;
+        }
+        int start = 0;
+        for(int d=0; d<=maxDegree; d++) {
+            final int num = bin[d];
+            bin[d] = start;
+            start += num;
+        }
+
+        // vert: vertices sorted by degree, pos: position of each vertex in vert
+        final int[] vert = new int[n];
+        final int[] pos = new int[n];
+        for(int i=0; i<n; i++) {
+            pos[i] = bin[corenesses[i]]++;
+            vert[pos[i]] = i;
+        }
+        for(int d=maxDegree; d>0; d--) {
+            bin[d] = bin[d-1];
+        }
+        bin[0] = 0;
+
+        final int step = Math.max(1, n / 10);
+        for(int i=0; i<n; i++) {
+
+            if(verbose && i % step == 0)
+                System.err.println("Progress:" + i +"/" +n);
+
+            final int v = vert[i];
+            final int k = corenesses[v];
+            for(int u : graph[v]) {
+                final int du = corenesses[u];
+                if(du > k) {
+                    // move u to the front of its bin and decrease its degree
+                    final int pu = pos[u];
+                    final int pw = bin[du];
+                    final int w = vert[pw];
+                    if(u != w) {
+                        pos[u] = pw;
+                        vert[pu] = w;
+                        pos[w] = pu;
+                        vert[pw] = u;
+                    }
+                    bin[du]++;
+                    corenesses[u] = du - 1;
+                }
+            }
+        }
+
+        if(verbose)
+            System.err.println("Core decomposition is computed...");
+
+        return corenesses;
+    }
+
+    /**
+     * compute the corenesses of vertices by rescanning the remaining vertices for each k
+     * @param graph input graph
+     * @param verbose whether to print progress
+     * @return corenesses of vertices (vertex index -> coreness)
+     */
+    private static int[] runNaive(int[][] graph, final boolean verbose) {
 
         if(verbose)
             System.err.println("computing core decomposition...");
@@ -0,0 +1,509 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Core Hierarchy (Core Forest)
+ *
+ * Each node is a connected component of a k-core. A node at level k stands for the component for every k' in
+ * (level of its parent, k], and its children are the components of higher cores contained in it. The forest is built
+ * by adding vertices in decreasing order of corenesses and merging components with union-find. Vertices are laid out
+ * in DFS order, so the vertices of each component occupy a contiguous range.
+ */
+public class CoreHierarchy {
+
+    /**
+     * "CRH1"
+     */
+    private static final int MAGIC = 0x43524831;
+
+    /**
+     * vertex index -> node the vertex was added to (the component of its own coreness)
+     */
+    private final int[] vertexNode;
+
+    /**
+     * node -> k
+     */
+    private final int[] nodeLevel;
+
+    /**
+     * node -> parent node (-1 for roots)
+     */
+    private final int[] nodeParent;
+
+    /**
+     * node -> range [start, end) of its vertices in order
+     */
+    private final int[] nodeStart;
+
+    private final int[] nodeEnd;
+
+    /**
+     * node -> range [childStart, childEnd) of its children in children
+     */
+    private final int[] childStart;
+
+    private final int[] children;
+
+    private final int[] roots;
+
+    /**
+     * vertices in DFS order of the forest
+     */
+    private final int[] order;
+
+    /**
+     * vertex index -> position in order
+     */
+    private final int[] position;
+
+    private CoreHierarchy(int[] vertexNode, int[] nodeLevel, int[] nodeParent) {
+        final int n = vertexNode.length;
+        final int nodeNum = nodeLevel.length;
+        this.vertexNode = vertexNode;
+        this.nodeLevel = nodeLevel;
+        this.nodeParent = nodeParent;
+
+        // children and own vertices of each node in CSR form
+        int rootNum = 0;
+        this.childStart = new int[nodeNum + 1];
+        for(int node=0; node<nodeNum; node++) {
+            if(nodeParent[node] < 0) {
+                rootNum++;
+            }
+            else {
+                childStart[nodeParent[node] + 1]++;
+            }
+        }
+        for(int node=0; node<nodeNum; node++) {
+            childStart[node + 1] += childStart[node];
+        }
+        this.children = new int[nodeNum - rootNum];
+        this.roots = new int[rootNum];
+        final int[] cursor = Arrays.copyOf(childStart, nodeNum);
+        rootNum = 0;
+        for(int node=0; node<nodeNum; node++) {
+            if(nodeParent[node] < 0) {
+                roots[rootNum++] = node;
+            }
+            else {
+                children[cursor[nodeParent[node]]++] = node;
+            }
+        }
+        final int[] ownStart = new int[nodeNum + 1];
+        for(int v=0; v<n; v++) {
+            ownStart[vertexNode[v] + 1]++;
+        }
+        for(int node=0; node<nodeNum; node++) {
+            ownStart[node + 1] += ownStart[node];
+        }
+        final int[] own = new int[n];
+        System.arraycopy(ownStart, 0, cursor, 0, nodeNum);
+        for(int v=0; v<n; v++) {
+            own[cursor[vertexNode[v]]++] = v;
+        }
+
+        // DFS: own vertices of a node followed by the subtrees of its children
+        this.nodeStart = new int[nodeNum];
+        this.nodeEnd = new int[nodeNum];
+        this.order = new int[n];
+        this.position = new int[n];
+        final int[] stack = new int[nodeNum];
+        final int[] next = new int[nodeNum]; // next child to visit
+        int size = 0;
+        for(int root : roots) {
+            int top = 0;
+            stack[top++] = root;
+            nodeStart[root] = size;
+            for(int i=ownStart[root]; i<ownStart[root + 1]; i++) {
+                order[size++] = own[i];
+            }
+            next[root] = childStart[root];
+            while(top > 0) {
+                final int node = stack[top - 1];
+                if(next[node] < childStart[node + 1]) {
+                    final int child = children[next[node]++];
+                    stack[top++] = child;
+                    nodeStart[child] = size;
+                    for(int i=ownStart[child]; i<ownStart[child + 1]; i++) {
+                        order[size++] = own[i];
+                    }
+                    next[child] = childStart[child];
+                }
+                else {
+                    nodeEnd[node] = size;
+                    top--;
+                }
+            }
+        }
+        for(int i=0; i<n; i++) {
+            position[order[i]] = i;
+        }
+    }
+
+    /**
+     * build the core hierarchy of a graph
+     * @param graph input graph
+     * @param corenesses    corenesses of verticies
+     * @return core hierarchy
+     */
+    public static CoreHierarchy build(final int[][] graph, final int[] corenesses) {
+
+        final int n = graph.length;
+        int maxK = 0;
+        for(int coreness : corenesses) {
+            maxK = Math.max(maxK, coreness);
+        }
+
+        // vertices sorted by coreness
+        final int[] levelStart = new int[maxK + 2];
+        for(int v=0; v<n; v++) {
+            levelStart[corenesses[v] + 1]++;
+        }
+        for(int k=0; k<=maxK; k++) {
+            levelStart[k + 1] += levelStart[k];
+        }
+        final int[] sorted = new int[n];
+        final int[] cursor = Arrays.copyOf(levelStart, maxK + 1);
+        for(int v=0; v<n; v++) {
+            sorted[cursor[corenesses[v]]++] = v;
+        }
+
+        final int[] uf = new int[n]; // union-find parents
+        final int[] ufSize = new int[n];
+        final int[] rootNode = new int[n]; // union-find root -> node of its component
+        final int[] vertexNode = new int[n];
+        for(int v=0; v<n; v++) {
+            uf[v] = v;
+            ufSize[v] = 1;
+            rootNode[v] = -1;
+        }
+        int[] nodeLevel = new int[16];
+        int[] nodeParent = new int[16];
+        int nodeNum = 0;
+
+        final int[] stamp = new int[n];
+        Arrays.fill(stamp, -1);
+        final int[] oldRoots = new int[n];
+        for(int k=maxK; k>=0; k--) {
+            final int from = levelStart[k];
+            final int to = levelStart[k + 1];
+            if(from == to) {
+                continue;
+            }
+
+            // components of the (k+1)-core touched by the new vertices, collected before they are merged
+            int oldNum = 0;
+            for(int i=from; i<to; i++) {
+                for(int u : graph[sorted[i]]) {
+                    if(corenesses[u] > k) {
+                        final int root = find(uf, u);
+                        if(stamp[root] != k) {
+                            stamp[root] = k;
+                            oldRoots[oldNum++] = root;
+                        }
+                    }
+                }
+            }
+            final int[] oldNodes = new int[oldNum];
+            for(int i=0; i<oldNum; i++) {
+                oldNodes[i] = rootNode[oldRoots[i]];
+            }
+
+            for(int i=from; i<to; i++) {
+                final int v = sorted[i];
+                for(int u : graph[v]) {
+                    if(corenesses[u] >= k) {
+                        union(uf, ufSize, u, v);
+                    }
+                }
+            }
+
+            // a new node for each component containing new vertices
+            for(int i=from; i<to; i++) {
+                final int root = find(uf, sorted[i]);
+                if(stamp[root] != k || rootNode[root] < 0 || nodeLevel[rootNode[root]] != k) {
+                    if(nodeNum == nodeLevel.length) {
+                        nodeLevel = Arrays.copyOf(nodeLevel, nodeNum * 2);
+                        nodeParent = Arrays.copyOf(nodeParent, nodeNum * 2);
+                    }
+                    nodeLevel[nodeNum] = k;
+                    nodeParent[nodeNum] = -1;
+                    stamp[root] = k;
+                    rootNode[root] = nodeNum++;
+                }
+                vertexNode[sorted[i]] = rootNode[root];
+            }
+            for(int i=0; i<oldNum; i++) {
+                nodeParent[oldNodes[i]] = rootNode[find(uf, oldRoots[i])];
+            }
+        }
+
+        return new CoreHierarchy(vertexNode, Arrays.copyOf(nodeLevel, nodeNum), Arrays.copyOf(nodeParent, nodeNum));
+    }
+
+    /**
+     * build the core hierarchy of a graph
+     * @param graph input graph
+     * @return core hierarchy
+     */
+    public static CoreHierarchy build(final int[][] graph) {
+        return build(graph, CoreDecomp.run(graph, false));
+    }
+
+    private static int find(int[] uf, int v) {
+        int root = v;
+        while(uf[root] != root) {
+            root = uf[root];
+        }
+        while(uf[v] != root) {
+            final int next = uf[v];
+            uf[v] = root;
+            v = next;
+        }
+        return root;
+    }
+
+    private static void union(int[] uf, int[] ufSize, int u, int v) {
+        int ru = find(uf, u);
+        int rv = find(uf, v);
+        if(ru == rv) {
+            return;
+        }
+        if(ufSize[ru] < ufSize[rv]) {
+            final int temp = ru;
+            ru = rv;
+            rv = temp;
+        }
+        uf[rv] = ru;
+        ufSize[ru] += ufSize[rv];
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int numNodes() {
+        return vertexNode.length;
+    }
+
+    /**
+     * @return number of components (nodes of the forest)
+     */
+    public int numComponents() {
+        return nodeLevel.length;
+    }
+
+    /**
+     * @param v vertex index
+     * @return coreness of v
+     */
+    public int coreness(int v) {
+        return nodeLevel[vertexNode[v]];
+    }
+
+    /**
+     * find the component of the k-core containing a vertex
+     * @param v vertex index
+     * @param k
+     * @return component, or -1 if v is not in the k-core
+     */
+    public int component(int v, int k) {
+        int node = vertexNode[v];
+        if(nodeLevel[node] < k) {
+            return -1;
+        }
+        while(nodeParent[node] >= 0 && nodeLevel[nodeParent[node]] >= k) {
+            node = nodeParent[node];
+        }
+        return node;
+    }
+
+    /**
+     * @param k
+     * @return components of the k-core
+     */
+    public int[] components(int k) {
+        int[] result = new int[16];
+        int size = 0;
+        int[] stack = Arrays.copyOf(roots, Math.max(16, roots.length));
+        int top = roots.length;
+        while(top > 0) {
+            final int node = stack[--top];
+            if(nodeLevel[node] >= k) {
+                if(size == result.length) {
+                    result = Arrays.copyOf(result, size * 2);
+                }
+                result[size++] = node;
+                continue;
+            }
+            for(int i=childStart[node]; i<childStart[node + 1]; i++) {
+                if(top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top++] = children[i];
+            }
+        }
+        final int[] trimmed = Arrays.copyOf(result, size);
+        Arrays.sort(trimmed);
+        return trimmed;
+    }
+
+    /**
+     * @param component component
+     * @return largest k such that the component is a component of the k-core
+     */
+    public int level(int component) {
+        return nodeLevel[component];
+    }
+
+    /**
+     * @param component component
+     * @return component of a lower core containing the given one, or -1 if it is a component of the 0-core
+     */
+    public int parent(int component) {
+        return nodeParent[component];
+    }
+
+    /**
+     * @param component component
+     * @return components of higher cores directly contained in the given one
+     */
+    public int[] children(int component) {
+        return Arrays.copyOfRange(children, childStart[component], childStart[component + 1]);
+    }
+
+    /**
+     * @param component component
+     * @return number of vertices in the component
+     */
+    public int size(int component) {
+        return nodeEnd[component] - nodeStart[component];
+    }
+
+    /**
+     * @param component component
+     * @param v vertex index
+     * @return whether v belongs to the component
+     */
+    public boolean contains(int component, int v) {
+        return position[v] >= nodeStart[component] && position[v] < nodeEnd[component];
+    }
+
+    /**
+     * @param component component
+     * @return vertices in the component
+     */
+    public int[] vertices(int component) {
+        return Arrays.copyOfRange(order, nodeStart[component], nodeEnd[component]);
+    }
+
+    /**
+     * extract the subgraph of a component
+     * @param graph graph the hierarchy was built from
+     * @param component component
+     * @return subgraph, indexToOriginal (index in the subgraph -> index in the entire graph)
+     */
+    public Pair<int[][], int[]> extract(final int[][] graph, final int component) {
+        final int[] indexToOriginal = vertices(component);
+        Arrays.sort(indexToOriginal);
+        final int start = nodeStart[component];
+        final int end = nodeEnd[component];
+        final int[] originalToIndex = new int[end - start]; // position - start -> index in the subgraph
+        for(int i=0; i<indexToOriginal.length; i++) {
+            originalToIndex[position[indexToOriginal[i]] - start] = i;
+        }
+        final int[][] subgraph = new int[indexToOriginal.length][];
+        for(int i=0; i<indexToOriginal.length; i++) {
+            final int[] neighbors = graph[indexToOriginal[i]];
+            int count = 0;
+            for(int u : neighbors) {
+                if(position[u] >= start && position[u] < end) {
+                    count++;
+                }
+            }
+            subgraph[i] = new int[count];
+            count = 0;
+            for(int u : neighbors) {
+                if(position[u] >= start && position[u] < end) {
+                    subgraph[i][count++] = originalToIndex[position[u] - start];
+                }
+            }
+        }
+        return new Pair(subgraph, indexToOriginal);
+    }
+
+    /**
+     * write the hierarchy to a file
+     * @param path  path of the output file
+     * @throws IOException
+     */
+    public void write(String path) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(vertexNode.length);
+            out.writeInt(nodeLevel.length);
+            for(int node : vertexNode) {
+                out.writeInt(node);
+            }
+            for(int node=0; node<nodeLevel.length; node++) {
+                out.writeInt(nodeLevel[node]);
+                out.writeInt(nodeParent[node]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * read a hierarchy written by {@link #write(String)}
+     * @param path  path of the file
+     * @return core hierarchy
+     * @throws IOException
+     */
+    public static CoreHierarchy read(String path) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+        try {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("not a core hierarchy file: " + path);
+            }
+            final int[] vertexNode = new int[in.readInt()];
+            final int nodeNum = in.readInt();
+            final int[] nodeLevel = new int[nodeNum];
+            final int[] nodeParent = new int[nodeNum];
+            for(int v=0; v<vertexNode.length; v++) {
+                vertexNode[v] = in.readInt();
+            }
+            for(int node=0; node<nodeNum; node++) {
+                nodeLevel[node] = in.readInt();
+                nodeParent[node] = in.readInt();
+            }
+            return new CoreHierarchy(vertexNode, nodeLevel, nodeParent);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,415 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.util.Arrays;
+
+/**
+ * Corenesses maintained under edge insertions and deletions
+ *
+ * Traversal-based maintenance (Sariyuce et al.): inserting or deleting an edge (u, v) changes the corenesses of
+ * at most the vertices with coreness K = min(core(u), core(v)) that are connected to u or v through vertices with
+ * coreness K, and each of them changes by at most one. Only that subcore is traversed.
+ */
+public class DynamicCore {
+
+    private int n;
+
+    /**
+     * vertex index -> neighbors (first degree[v] entries are valid, unordered)
+     */
+    private int[][] adj;
+
+    private int[] degrees;
+
+    private int[] corenesses;
+
+    /**
+     * scratch arrays indexed by vertex; an entry is valid only if its stamp equals the current epoch
+     */
+    private int[] visitStamp;
+
+    private int[] cd;
+
+    private boolean[] evicted;
+
+    private int epoch = 0;
+
+    private int[] queue;
+
+    /**
+     * vertices whose coreness changed in the current batch with their coreness before the batch
+     */
+    private int[] changeStamp;
+
+    private int[] originalCore;
+
+    private int[] changed;
+
+    private int changedNum = 0;
+
+    private int batch = 0;
+
+    /**
+     * @param graph initial graph (not modified)
+     */
+    public DynamicCore(int[][] graph) {
+        this.n = graph.length;
+        this.adj = new int[n][];
+        this.degrees = new int[n];
+        for(int i=0; i<n; i++) {
+            adj[i] = graph[i].clone();
+            degrees[i] = graph[i].length;
+        }
+        this.corenesses = CoreDecomp.run(graph, false);
+        allocateScratch(n);
+    }
+
+    private void allocateScratch(int capacity) {
+        visitStamp = new int[capacity];
+        cd = new int[capacity];
+        evicted = new boolean[capacity];
+        queue = new int[capacity * 2]; // visited vertices followed by evicted ones
+        changeStamp = new int[capacity];
+        originalCore = new int[capacity];
+        changed = new int[capacity];
+        epoch = 0;
+        batch = 0;
+        changedNum = 0;
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int numNodes() {
+        return n;
+    }
+
+    /**
+     * @param v vertex index
+     * @return current coreness of v
+     */
+    public int coreness(int v) {
+        return v < n ? corenesses[v] : 0;
+    }
+
+    /**
+     * @param v vertex index
+     * @return current degree of v
+     */
+    public int degree(int v) {
+        return v < n ? degrees[v] : 0;
+    }
+
+    /**
+     * @return current corenesses of vertices (vertex index -> coreness)
+     */
+    public int[] getCorenesses() {
+        return Arrays.copyOf(corenesses, n);
+    }
+
+    /**
+     * @return current degrees of vertices (vertex index -> degree)
+     */
+    public int[] getDegrees() {
+        return Arrays.copyOf(degrees, n);
+    }
+
+    /**
+     * @return current graph (vertex index -> sorted neighbors)
+     */
+    public int[][] getGraph() {
+        final int[][] graph = new int[n][];
+        for(int i=0; i<n; i++) {
+            graph[i] = Arrays.copyOf(adj[i], degrees[i]);
+            Arrays.sort(graph[i]);
+        }
+        return graph;
+    }
+
+    /**
+     * apply a batch of edge deletions followed by a batch of edge insertions
+     * @param insSrc    sources of inserted edges
+     * @param insTrg    targets of inserted edges
+     * @param delSrc    sources of deleted edges
+     * @param delTrg    targets of deleted edges
+     * @return vertices whose coreness changed by the batch (sorted)
+     */
+    public int[] apply(int[] insSrc, int[] insTrg, int[] delSrc, int[] delTrg) {
+        batch++;
+        if(batch == Integer.MAX_VALUE) {
+            Arrays.fill(changeStamp, 0);
+            batch = 1;
+        }
+        changedNum = 0;
+        for(int i=0; i<delSrc.length; i++) {
+            delete(delSrc[i], delTrg[i]);
+        }
+        for(int i=0; i<insSrc.length; i++) {
+            insert(insSrc[i], insTrg[i]);
+        }
+        int size = 0;
+        final int[] result = new int[changedNum];
+        for(int i=0; i<changedNum; i++) {
+            final int v = changed[i];
+            if(corenesses[v] != originalCore[v]) {
+                result[size++] = v;
+            }
+        }
+        final int[] trimmed = Arrays.copyOf(result, size);
+        Arrays.sort(trimmed);
+        return trimmed;
+    }
+
+    /**
+     * insert an edge
+     * @param u endpoint
+     * @param v endpoint
+     * @return vertices whose coreness changed (sorted)
+     */
+    public int[] insertEdge(int u, int v) {
+        return apply(new int[]{u}, new int[]{v}, new int[0], new int[0]);
+    }
+
+    /**
+     * delete an edge
+     * @param u endpoint
+     * @param v endpoint
+     * @return vertices whose coreness changed (sorted)
+     */
+    public int[] deleteEdge(int u, int v) {
+        return apply(new int[0], new int[0], new int[]{u}, new int[]{v});
+    }
+
+    private void insert(int u, int v) {
+        if(u == v || u < 0 || v < 0) {
+            return;
+        }
+        ensureCapacity(Math.max(u, v) + 1);
+        if(contains(u, v)) {
+            return;
+        }
+        addNeighbor(u, v);
+        addNeighbor(v, u);
+
+        final int K = Math.min(corenesses[u], corenesses[v]);
+        nextEpoch();
+
+        // traverse the K-subcore from the roots, expanding only from vertices that may stay in the (K+1)-core
+        int head = 0;
+        int tail = 0;
+        if(corenesses[u] == K) {
+            visit(u);
+            queue[tail++] = u;
+        }
+        if(corenesses[v] == K) {
+            visit(v);
+            queue[tail++] = v;
+        }
+        while(head < tail) {
+            final int w = queue[head++];
+            int count = 0;
+            for(int i=0; i<degrees[w]; i++) {
+                if(corenesses[adj[w][i]] >= K) {
+                    count++;
+                }
+            }
+            cd[w] = count;
+            if(count > K) {
+                for(int i=0; i<degrees[w]; i++) {
+                    final int x = adj[w][i];
+                    if(corenesses[x] == K && visitStamp[x] != epoch) {
+                        visit(x);
+                        queue[tail++] = x;
+                    }
+                }
+            }
+        }
+        final int visitedNum = tail;
+
+        // evict vertices that cannot be in the (K+1)-core
+        int evictHead = visitedNum;
+        int evictTail = visitedNum;
+        for(int i=0; i<visitedNum; i++) {
+            final int w = queue[i];
+            if(cd[w] <= K) {
+                evicted[w] = true;
+                queue[evictTail++] = w;
+            }
+        }
+        while(evictHead < evictTail) {
+            final int w = queue[evictHead++];
+            for(int i=0; i<degrees[w]; i++) {
+                final int x = adj[w][i];
+                if(visitStamp[x] == epoch && !evicted[x] && corenesses[x] == K) {
+                    if(--cd[x] <= K) {
+                        evicted[x] = true;
+                        queue[evictTail++] = x;
+                    }
+                }
+            }
+        }
+
+        for(int i=0; i<visitedNum; i++) {
+            final int w = queue[i];
+            if(!evicted[w]) {
+                recordChange(w);
+                corenesses[w] = K + 1;
+            }
+        }
+    }
+
+    private void delete(int u, int v) {
+        if(u == v || u < 0 || v < 0 || u >= n || v >= n || !contains(u, v)) {
+            return;
+        }
+        removeNeighbor(u, v);
+        removeNeighbor(v, u);
+
+        final int K = Math.min(corenesses[u], corenesses[v]);
+        if(K == 0) {
+            return;
+        }
+        nextEpoch();
+
+        // demote vertices whose number of neighbors with coreness at least K drops below K
+        int head = 0;
+        int tail = 0;
+        if(corenesses[u] == K) {
+            computeCd(u, K);
+            if(cd[u] < K) {
+                demote(u);
+                queue[tail++] = u;
+            }
+        }
+        if(corenesses[v] == K) {
+            computeCd(v, K);
+            if(cd[v] < K) {
+                demote(v);
+                queue[tail++] = v;
+            }
+        }
+        while(head < tail) {
+            final int w = queue[head++];
+            for(int i=0; i<degrees[w]; i++) {
+                final int x = adj[w][i];
+                if(corenesses[x] != K) {
+                    continue;
+                }
+                if(visitStamp[x] != epoch) {
+                    computeCd(x, K);
+                }
+                if(--cd[x] < K) {
+                    demote(x);
+                    queue[tail++] = x;
+                }
+            }
+        }
+    }
+
+    /**
+     * count the neighbors of w with coreness at least K, including those demoted in this epoch
+     * since their demotions are subtracted when they are dequeued
+     */
+    private void computeCd(int w, int K) {
+        visit(w);
+        int count = 0;
+        for(int i=0; i<degrees[w]; i++) {
+            final int x = adj[w][i];
+            if(corenesses[x] >= K || (visitStamp[x] == epoch && evicted[x])) {
+                count++;
+            }
+        }
+        cd[w] = count;
+    }
+
+    private void demote(int w) {
+        recordChange(w);
+        corenesses[w]--;
+        evicted[w] = true;
+    }
+
+    private void visit(int w) {
+        visitStamp[w] = epoch;
+        evicted[w] = false;
+    }
+
+    private void nextEpoch() {
+        epoch++;
+        if(epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visitStamp, 0);
+            epoch = 1;
+        }
+    }
+
+    private void recordChange(int w) {
+        if(changeStamp[w] != batch) {
+            changeStamp[w] = batch;
+            originalCore[w] = corenesses[w];
+            changed[changedNum++] = w;
+        }
+    }
+
+    private boolean contains(int u, int v) {
+        final int s = degrees[u] <= degrees[v] ? u : v;
+        final int t = s == u ? v : u;
+        for(int i=0; i<degrees[s]; i++) {
+            if(adj[s][i] == t) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addNeighbor(int u, int v) {
+        if(degrees[u] == adj[u].length) {
+            adj[u] = Arrays.copyOf(adj[u], Math.max(4, adj[u].length * 2));
+        }
+        adj[u][degrees[u]++] = v;
+    }
+
+    private void removeNeighbor(int u, int v) {
+        for(int i=0; i<degrees[u]; i++) {
+            if(adj[u][i] == v) {
+                adj[u][i] = adj[u][--degrees[u]];
+                return;
+            }
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if(size <= n) {
+            return;
+        }
+        if(size > adj.length) {
+            final int capacity = Math.max(size, adj.length * 2);
+            adj = Arrays.copyOf(adj, capacity);
+            degrees = Arrays.copyOf(degrees, capacity);
+            corenesses = Arrays.copyOf(corenesses, capacity);
+            visitStamp = Arrays.copyOf(visitStamp, capacity);
+            cd = Arrays.copyOf(cd, capacity);
+            evicted = Arrays.copyOf(evicted, capacity);
+            queue = Arrays.copyOf(queue, capacity * 2);
+            changeStamp = Arrays.copyOf(changeStamp, capacity);
+            originalCore = Arrays.copyOf(originalCore, capacity);
+            changed = Arrays.copyOf(changed, capacity);
+        }
+        for(int i=n; i<size; i++) {
+            adj[i] = Import.EMPTY;
+        }
+        n = size;
+    }
+}
@@ -0,0 +1,723 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Trussness of edges maintained under edge insertions and deletions
+ *
+ * Inserting or deleting an edge changes the trussness of every other edge by at most one (Huang et al.). An edge with
+ * trussness k can only change if it is connected to the updated edge through triangles whose edges all have
+ * trussness at least k, and such edges are traversed level by level as in {@link DynamicCore}: candidates at level k
+ * are promoted to k+1 unless evicted, or demoted to k-1 once their support within the k-truss drops below k-2.
+ * Levels are independent of each other, so insertions handle them from the highest and deletions from the lowest.
+ */
+public class DynamicTruss {
+
+    private int n;
+
+    /**
+     * vertex index -> sorted neighbors (first degree[v] entries are valid)
+     */
+    private int[][] adj;
+
+    /**
+     * vertex index -> IDs of the edges to its neighbors (parallel to adj)
+     */
+    private int[][] adjEdges;
+
+    private int[] degrees;
+
+    private int[] vertexTrussness;
+
+    /**
+     * edge ID -> endpoints and trussness; IDs of deleted edges are reused
+     */
+    private int[] sources;
+
+    private int[] targets;
+
+    private int[] trussness;
+
+    private int edgeNum = 0;
+
+    private int[] freeIds = new int[16];
+
+    private int freeNum = 0;
+
+    /**
+     * scratch arrays indexed by edge ID; an entry is valid only if its stamp equals the current epoch
+     */
+    private int[] visitStamp;
+
+    private int[] sup;
+
+    /**
+     * 0: candidate, 1: evicted (or demoted) but not processed, 2: processed
+     */
+    private byte[] state;
+
+    private int epoch = 0;
+
+    private int[] queue;
+
+    /**
+     * triangles of an edge, found by {@link #triangles(int, Triangles)}
+     */
+    private final Triangles outer = new Triangles();
+
+    private final Triangles inner = new Triangles();
+
+    /**
+     * vertices whose trussness may have changed in the current batch with their trussness before the batch
+     */
+    private int[] changeStamp;
+
+    private int[] originalTruss;
+
+    private int[] changed;
+
+    private int changedNum = 0;
+
+    private int batch = 0;
+
+    /**
+     * Pairs of edges (e1[i], e2[i]) forming a triangle with a given edge
+     */
+    private static class Triangles {
+        int[] e1 = new int[16];
+        int[] e2 = new int[16];
+        int size = 0;
+
+        void add(int a, int b) {
+            if(size == e1.length) {
+                e1 = Arrays.copyOf(e1, size * 2);
+                e2 = Arrays.copyOf(e2, size * 2);
+            }
+            e1[size] = a;
+            e2[size] = b;
+            size++;
+        }
+    }
+
+    /**
+     * @param graph initial graph (not modified)
+     */
+    public DynamicTruss(int[][] graph) {
+        this(EdgeIndex.build(graph), null);
+    }
+
+    /**
+     * @param index edge index of the initial graph (not modified)
+     * @param edgeTrussness trussness of edges (edge ID -> trussness), e.g., read by {@link EdgeTrussFile#read},
+     *                      or null to compute it
+     */
+    public DynamicTruss(EdgeIndex index, int[] edgeTrussness) {
+        final int[][] graph = index.getGraph();
+        this.n = graph.length;
+        this.adj = new int[n][];
+        this.adjEdges = new int[n][];
+        this.degrees = new int[n];
+        for(int i=0; i<n; i++) {
+            adj[i] = graph[i].clone();
+            adjEdges[i] = index.edgeIds(i).clone();
+            degrees[i] = graph[i].length;
+        }
+        final int m = index.numEdges();
+        this.edgeNum = m;
+        this.sources = new int[Math.max(m, 16)];
+        this.targets = new int[sources.length];
+        for(int e=0; e<m; e++) {
+            sources[e] = index.source(e);
+            targets[e] = index.target(e);
+        }
+        final int[] initial = edgeTrussness != null ? edgeTrussness : TrussDecomp.runEdges(index, false);
+        this.trussness = Arrays.copyOf(initial, sources.length);
+        this.vertexTrussness = TrussDecomp.toVertexTrussness(index, initial);
+        this.visitStamp = new int[sources.length];
+        this.sup = new int[sources.length];
+        this.state = new byte[sources.length];
+        this.queue = new int[sources.length * 2]; // visited edges followed by evicted ones
+        this.changeStamp = new int[n];
+        this.originalTruss = new int[n];
+        this.changed = new int[n];
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int numNodes() {
+        return n;
+    }
+
+    /**
+     * @return number of edges
+     */
+    public int numEdges() {
+        return edgeNum - freeNum;
+    }
+
+    /**
+     * @param v vertex index
+     * @return current degree of v
+     */
+    public int degree(int v) {
+        return v < n ? degrees[v] : 0;
+    }
+
+    /**
+     * @param u endpoint
+     * @param v endpoint
+     * @return current trussness of the edge (u, v), or 0 if there is no such edge
+     */
+    public int trussness(int u, int v) {
+        if(u < 0 || v < 0 || u >= n || v >= n) {
+            return 0;
+        }
+        final int e = find(u, v);
+        return e >= 0 ? trussness[e] : 0;
+    }
+
+    /**
+     * @param v vertex index
+     * @return current trussness of v (maximum trussness of its edges, 0 if it has no edge)
+     */
+    public int vertexTrussness(int v) {
+        return v < n ? vertexTrussness[v] : 0;
+    }
+
+    /**
+     * @return current trussness of vertices (vertex index -> trussness), as returned by {@link TrussDecomp#run}
+     */
+    public int[] getVertexTrussness() {
+        return Arrays.copyOf(vertexTrussness, n);
+    }
+
+    /**
+     * @return current degrees of vertices (vertex index -> degree)
+     */
+    public int[] getDegrees() {
+        return Arrays.copyOf(degrees, n);
+    }
+
+    /**
+     * @return current graph (vertex index -> sorted neighbors)
+     */
+    public int[][] getGraph() {
+        final int[][] graph = new int[n][];
+        for(int i=0; i<n; i++) {
+            graph[i] = Arrays.copyOf(adj[i], degrees[i]);
+        }
+        return graph;
+    }
+
+    /**
+     * write the current trussness of edges to a binary side file
+     * @param path  path of the output file
+     * @throws IOException
+     */
+    public void write(String path) throws IOException {
+        final int m = numEdges();
+        final int[] src = new int[m];
+        final int[] trg = new int[m];
+        final int[] truss = new int[m];
+        int count = 0;
+        for(int v=0; v<n; v++) {
+            for(int i=0; i<degrees[v]; i++) {
+                if(adj[v][i] > v) {
+                    final int e = adjEdges[v][i];
+                    src[count] = v;
+                    trg[count] = adj[v][i];
+                    truss[count] = trussness[e];
+                    count++;
+                }
+            }
+        }
+        EdgeTrussFile.write(path, m, src, trg, truss);
+    }
+
+    /**
+     * apply a batch of edge deletions followed by a batch of edge insertions
+     * @param insSrc    sources of inserted edges
+     * @param insTrg    targets of inserted edges
+     * @param delSrc    sources of deleted edges
+     * @param delTrg    targets of deleted edges
+     * @return vertices whose trussness changed by the batch (sorted)
+     */
+    public int[] apply(int[] insSrc, int[] insTrg, int[] delSrc, int[] delTrg) {
+        batch++;
+        if(batch == Integer.MAX_VALUE) {
+            Arrays.fill(changeStamp, 0);
+            batch = 1;
+        }
+        changedNum = 0;
+        for(int i=0; i<delSrc.length; i++) {
+            delete(delSrc[i], delTrg[i]);
+        }
+        for(int i=0; i<insSrc.length; i++) {
+            insert(insSrc[i], insTrg[i]);
+        }
+        int size = 0;
+        final int[] result = new int[changedNum];
+        for(int i=0; i<changedNum; i++) {
+            final int v = changed[i];
+            int truss = 0;
+            for(int j=0; j<degrees[v]; j++) {
+                truss = Math.max(truss, trussness[adjEdges[v][j]]);
+            }
+            vertexTrussness[v] = truss;
+            if(truss != originalTruss[v]) {
+                result[size++] = v;
+            }
+        }
+        final int[] trimmed = Arrays.copyOf(result, size);
+        Arrays.sort(trimmed);
+        return trimmed;
+    }
+
+    /**
+     * insert an edge
+     * @param u endpoint
+     * @param v endpoint
+     * @return vertices whose trussness changed (sorted)
+     */
+    public int[] insertEdge(int u, int v) {
+        return apply(new int[]{u}, new int[]{v}, new int[0], new int[0]);
+    }
+
+    /**
+     * delete an edge
+     * @param u endpoint
+     * @param v endpoint
+     * @return vertices whose trussness changed (sorted)
+     */
+    public int[] deleteEdge(int u, int v) {
+        return apply(new int[0], new int[0], new int[]{u}, new int[]{v});
+    }
+
+    private void insert(int u, int v) {
+        if(u == v || u < 0 || v < 0) {
+            return;
+        }
+        ensureCapacity(Math.max(u, v) + 1);
+        if(find(u, v) >= 0) {
+            return;
+        }
+        final int e0 = newEdge(u, v);
+        addNeighbor(u, v, e0);
+        addNeighbor(v, u, e0);
+        recordChange(u);
+        recordChange(v);
+
+        // the new edge is in the k-truss of the old edges with trussness at least k if k-2 triangles lie there
+        triangles(e0, outer);
+        final int size = outer.size;
+        final int[] mins = new int[size];
+        for(int i=0; i<size; i++) {
+            mins[i] = Math.min(trussness[outer.e1[i]], trussness[outer.e2[i]]);
+        }
+        Arrays.sort(mins);
+        int k0 = 2;
+        for(int i=size-1; i>=0; i--) {
+            final int count = size - i; // number of triangles with min trussness at least mins[i]
+            k0 = Math.max(k0, Math.min(mins[i], count + 2));
+        }
+        trussness[e0] = k0;
+
+        // roots at level k: edges with trussness k <= k0 in a triangle of e0 whose other edge has trussness at least k
+        final long[] roots = new long[size * 2 + 1];
+        int rootNum = 0;
+        roots[rootNum++] = ((long) k0 << 32) | e0;
+        for(int i=0; i<size; i++) {
+            final int a = outer.e1[i];
+            final int b = outer.e2[i];
+            if(trussness[a] <= k0 && trussness[b] >= trussness[a]) {
+                roots[rootNum++] = ((long) trussness[a] << 32) | a;
+            }
+            if(trussness[b] <= k0 && trussness[a] >= trussness[b]) {
+                roots[rootNum++] = ((long) trussness[b] << 32) | b;
+            }
+        }
+        Arrays.sort(roots, 0, rootNum);
+        for(int end=rootNum; end>0; ) {
+            final int k = (int) (roots[end - 1] >>> 32);
+            int begin = end - 1;
+            while(begin > 0 && (int) (roots[begin - 1] >>> 32) == k) {
+                begin--;
+            }
+            promoteLevel(k, roots, begin, end);
+            end = begin;
+        }
+    }
+
+    /**
+     * promote to k+1 the candidate edges with trussness k that stay in the (k+1)-truss
+     */
+    private void promoteLevel(int k, long[] roots, int begin, int end) {
+        nextEpoch();
+
+        // traverse from the roots, expanding only from edges that may stay in the (k+1)-truss
+        int head = 0;
+        int tail = 0;
+        for(int i=begin; i<end; i++) {
+            final int e = (int) roots[i];
+            if(visitStamp[e] != epoch) {
+                visit(e);
+                queue[tail++] = e;
+            }
+        }
+        while(head < tail) {
+            final int e = queue[head++];
+            triangles(e, outer);
+            int count = 0;
+            for(int i=0; i<outer.size; i++) {
+                if(trussness[outer.e1[i]] >= k && trussness[outer.e2[i]] >= k) {
+                    count++;
+                }
+            }
+            sup[e] = count;
+            if(count > k - 2) {
+                for(int i=0; i<outer.size; i++) {
+                    final int a = outer.e1[i];
+                    final int b = outer.e2[i];
+                    if(trussness[a] < k || trussness[b] < k) {
+                        continue;
+                    }
+                    if(trussness[a] == k && visitStamp[a] != epoch) {
+                        visit(a);
+                        queue[tail++] = a;
+                    }
+                    if(trussness[b] == k && visitStamp[b] != epoch) {
+                        visit(b);
+                        queue[tail++] = b;
+                    }
+                }
+            }
+        }
+        final int visitedNum = tail;
+
+        // evict edges that cannot be in the (k+1)-truss; a triangle is discounted by the first of its processed edges
+        int evictHead = visitedNum;
+        int evictTail = visitedNum;
+        for(int i=0; i<visitedNum; i++) {
+            final int e = queue[i];
+            if(sup[e] <= k - 2) {
+                state[e] = 1;
+                queue[evictTail++] = e;
+            }
+        }
+        while(evictHead < evictTail) {
+            final int e = queue[evictHead++];
+            triangles(e, outer);
+            for(int i=0; i<outer.size; i++) {
+                final int a = outer.e1[i];
+                final int b = outer.e2[i];
+                if(trussness[a] < k || trussness[b] < k || isProcessed(a, k) || isProcessed(b, k)) {
+                    continue;
+                }
+                evictTail = discount(a, k, evictTail);
+                evictTail = discount(b, k, evictTail);
+            }
+            state[e] = 2;
+        }
+
+        for(int i=0; i<visitedNum; i++) {
+            final int e = queue[i];
+            if(state[e] == 0) {
+                recordChange(sources[e]);
+                recordChange(targets[e]);
+                trussness[e] = k + 1;
+            }
+        }
+    }
+
+    private boolean isProcessed(int e, int k) {
+        return trussness[e] == k && visitStamp[e] == epoch && state[e] == 2;
+    }
+
+    private int discount(int e, int k, int evictTail) {
+        if(trussness[e] == k && visitStamp[e] == epoch && state[e] == 0) {
+            if(--sup[e] <= k - 2) {
+                state[e] = 1;
+                queue[evictTail++] = e;
+            }
+        }
+        return evictTail;
+    }
+
+    private void delete(int u, int v) {
+        if(u == v || u < 0 || v < 0 || u >= n || v >= n) {
+            return;
+        }
+        final int e0 = find(u, v);
+        if(e0 < 0) {
+            return;
+        }
+        final int k0 = trussness[e0];
+        triangles(e0, outer);
+        removeNeighbor(u, v);
+        removeNeighbor(v, u);
+        freeEdge(e0);
+        recordChange(u);
+        recordChange(v);
+
+        // roots at level k: edges with trussness k in a triangle of the deleted edge whose edges all had trussness at least k
+        final int size = outer.size;
+        final long[] roots = new long[size * 2];
+        int rootNum = 0;
+        for(int i=0; i<size; i++) {
+            final int a = outer.e1[i];
+            final int b = outer.e2[i];
+            final int k = Math.min(k0, Math.min(trussness[a], trussness[b]));
+            if(k <= 2) {
+                continue;
+            }
+            if(trussness[a] == k) {
+                roots[rootNum++] = ((long) k << 32) | a;
+            }
+            if(trussness[b] == k) {
+                roots[rootNum++] = ((long) k << 32) | b;
+            }
+        }
+        Arrays.sort(roots, 0, rootNum);
+        for(int begin=0; begin<rootNum; ) {
+            final int k = (int) (roots[begin] >>> 32);
+            int end = begin + 1;
+            while(end < rootNum && (int) (roots[end] >>> 32) == k) {
+                end++;
+            }
+            demoteLevel(k, roots, begin, end);
+            begin = end;
+        }
+    }
+
+    /**
+     * demote to k-1 the edges with trussness k whose support within the k-truss drops below k-2
+     */
+    private void demoteLevel(int k, long[] roots, int begin, int end) {
+        nextEpoch();
+        int head = 0;
+        int tail = 0;
+        for(int i=begin; i<end; i++) {
+            final int e = (int) roots[i];
+            if(visitStamp[e] != epoch) {
+                computeSup(e, k);
+                if(sup[e] < k - 2) {
+                    demote(e);
+                    queue[tail++] = e;
+                }
+            }
+        }
+        while(head < tail) {
+            final int e = queue[head++];
+            triangles(e, outer);
+            for(int i=0; i<outer.size; i++) {
+                final int a = outer.e1[i];
+                final int b = outer.e2[i];
+                if(!inTruss(a, k) || !inTruss(b, k) || isDemoted(a, 2) || isDemoted(b, 2)) {
+                    continue;
+                }
+                tail = decrease(a, k, tail);
+                tail = decrease(b, k, tail);
+            }
+            state[e] = 2;
+        }
+    }
+
+    /**
+     * whether an edge had trussness at least k at the start of level k
+     */
+    private boolean inTruss(int e, int k) {
+        return trussness[e] >= k || (visitStamp[e] == epoch && state[e] != 0);
+    }
+
+    private boolean isDemoted(int e, int s) {
+        return visitStamp[e] == epoch && state[e] == s;
+    }
+
+    private int decrease(int e, int k, int tail) {
+        if(trussness[e] != k) {
+            return tail;
+        }
+        if(visitStamp[e] != epoch) {
+            computeSup(e, k);
+        }
+        if(--sup[e] < k - 2) {
+            demote(e);
+            queue[tail++] = e;
+        }
+        return tail;
+    }
+
+    /**
+     * count the triangles of e within the k-truss, including those with edges demoted in this epoch
+     * since their demotions are subtracted when they are processed
+     */
+    private void computeSup(int e, int k) {
+        visit(e);
+        triangles(e, inner);
+        int count = 0;
+        for(int i=0; i<inner.size; i++) {
+            if(inTruss(inner.e1[i], k) && inTruss(inner.e2[i], k)) {
+                count++;
+            }
+        }
+        sup[e] = count;
+    }
+
+    private void demote(int e) {
+        recordChange(sources[e]);
+        recordChange(targets[e]);
+        trussness[e]--;
+        state[e] = 1;
+    }
+
+    /**
+     * find the triangles containing an edge by galloping from the endpoint with fewer neighbors
+     */
+    private void triangles(int e, Triangles result) {
+        result.size = 0;
+        int a = sources[e];
+        int b = targets[e];
+        if(degrees[a] > degrees[b]) {
+            final int temp = a;
+            a = b;
+            b = temp;
+        }
+        final int[] aNeighbors = adj[a];
+        final int[] bNeighbors = adj[b];
+        final int bLength = degrees[b];
+        int lo = 0;
+        for(int j=0; j<degrees[a] && lo<bLength; j++) {
+            final int found = Intersect.gallop(bNeighbors, lo, bLength, aNeighbors[j]);
+            if(found < 0) {
+                lo = -found - 1;
+                continue;
+            }
+            lo = found + 1;
+            result.add(adjEdges[a][j], adjEdges[b][found]);
+        }
+    }
+
+    private int find(int u, int v) {
+        if(degrees[u] > degrees[v]) {
+            final int temp = u;
+            u = v;
+            v = temp;
+        }
+        final int pos = Arrays.binarySearch(adj[u], 0, degrees[u], v);
+        return pos >= 0 ? adjEdges[u][pos] : -1;
+    }
+
+    private void visit(int e) {
+        visitStamp[e] = epoch;
+        state[e] = 0;
+    }
+
+    private void nextEpoch() {
+        epoch++;
+        if(epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visitStamp, 0);
+            epoch = 1;
+        }
+    }
+
+    private void recordChange(int v) {
+        if(changeStamp[v] != batch) {
+            changeStamp[v] = batch;
+            originalTruss[v] = vertexTrussness[v];
+            changed[changedNum++] = v;
+        }
+    }
+
+    private int newEdge(int u, int v) {
+        final int e;
+        if(freeNum > 0) {
+            e = freeIds[--freeNum];
+        }
+        else {
+            if(edgeNum == sources.length) {
+                final int capacity = sources.length * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                trussness = Arrays.copyOf(trussness, capacity);
+                visitStamp = Arrays.copyOf(visitStamp, capacity);
+                sup = Arrays.copyOf(sup, capacity);
+                state = Arrays.copyOf(state, capacity);
+                queue = Arrays.copyOf(queue, capacity * 2);
+            }
+            e = edgeNum++;
+        }
+        sources[e] = Math.min(u, v);
+        targets[e] = Math.max(u, v);
+        trussness[e] = 2;
+        visitStamp[e] = 0;
+        return e;
+    }
+
+    private void freeEdge(int e) {
+        if(freeNum == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeNum * 2);
+        }
+        freeIds[freeNum++] = e;
+        trussness[e] = 0;
+        visitStamp[e] = 0;
+    }
+
+    private void addNeighbor(int u, int v, int e) {
+        if(degrees[u] == adj[u].length) {
+            final int capacity = Math.max(4, adj[u].length * 2);
+            adj[u] = Arrays.copyOf(adj[u], capacity);
+            adjEdges[u] = Arrays.copyOf(adjEdges[u], capacity);
+        }
+        final int pos = -Arrays.binarySearch(adj[u], 0, degrees[u], v) - 1;
+        System.arraycopy(adj[u], pos, adj[u], pos + 1, degrees[u] - pos);
+        System.arraycopy(adjEdges[u], pos, adjEdges[u], pos + 1, degrees[u] - pos);
+        adj[u][pos] = v;
+        adjEdges[u][pos] = e;
+        degrees[u]++;
+    }
+
+    private void removeNeighbor(int u, int v) {
+        final int pos = Arrays.binarySearch(adj[u], 0, degrees[u], v);
+        System.arraycopy(adj[u], pos + 1, adj[u], pos, degrees[u] - pos - 1);
+        System.arraycopy(adjEdges[u], pos + 1, adjEdges[u], pos, degrees[u] - pos - 1);
+        degrees[u]--;
+    }
+
+    private void ensureCapacity(int size) {
+        if(size <= n) {
+            return;
+        }
+        if(size > adj.length) {
+            final int capacity = Math.max(size, adj.length * 2);
+            adj = Arrays.copyOf(adj, capacity);
+            adjEdges = Arrays.copyOf(adjEdges, capacity);
+            degrees = Arrays.copyOf(degrees, capacity);
+            vertexTrussness = Arrays.copyOf(vertexTrussness, capacity);
+            changeStamp = Arrays.copyOf(changeStamp, capacity);
+            originalTruss = Arrays.copyOf(originalTruss, capacity);
+            changed = Arrays.copyOf(changed, capacity);
+        }
+        for(int i=n; i<size; i++) {
+            adj[i] = Import.EMPTY;
+            adjEdges[i] = Import.EMPTY;
+        }
+        n = size;
+    }
+}
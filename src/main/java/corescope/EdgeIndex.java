@@ -0,0 +1,180 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+/**
+ * Integer IDs of the undirected edges of a graph
+ *
+ * Edge IDs are assigned in the order of (smaller endpoint, larger endpoint). Both adjacency entries of an edge carry
+ * its ID, so the ID of the reverse entry is found without any lookup.
+ */
+public class EdgeIndex {
+
+    private final int[][] graph;
+
+    /**
+     * vertex index -> IDs of the edges to its neighbors (parallel to graph)
+     */
+    private final int[][] edgeIds;
+
+    /**
+     * edge ID -> smaller endpoint
+     */
+    private final int[] sources;
+
+    /**
+     * edge ID -> larger endpoint
+     */
+    private final int[] targets;
+
+    private EdgeIndex(int[][] graph, int[][] edgeIds, int[] sources, int[] targets) {
+        this.graph = graph;
+        this.edgeIds = edgeIds;
+        this.sources = sources;
+        this.targets = targets;
+    }
+
+    /**
+     * assign IDs to the edges of a graph in O(n+m) time
+     * @param graph input graph (sorted adjacency lists)
+     * @return edge index
+     */
+    public static EdgeIndex build(final int[][] graph) {
+        final int n = graph.length;
+        long entries = 0;
+        final int[][] edgeIds = new int[n][];
+        for(int v=0; v<n; v++) {
+            edgeIds[v] = new int[graph[v].length];
+            entries += graph[v].length;
+        }
+        if(entries / 2 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too many edges: " + (entries / 2));
+        }
+        final int m = (int) (entries / 2);
+        final int[] sources = new int[m];
+        final int[] targets = new int[m];
+
+        // smaller neighbors of each vertex form a prefix of its list and are reached in increasing order
+        final int[] cursor = new int[n];
+        int id = 0;
+        for(int v=0; v<n; v++) {
+            final int[] neighbors = graph[v];
+            for(int i=0; i<neighbors.length; i++) {
+                final int u = neighbors[i];
+                if(u > v) {
+                    sources[id] = v;
+                    targets[id] = u;
+                    edgeIds[v][i] = id;
+                    edgeIds[u][cursor[u]++] = id;
+                    id++;
+                }
+            }
+        }
+        return new EdgeIndex(graph, edgeIds, sources, targets);
+    }
+
+    /**
+     * @return graph the index was built from
+     */
+    public int[][] getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return number of undirected edges
+     */
+    public int numEdges() {
+        return sources.length;
+    }
+
+    /**
+     * @param v vertex index
+     * @return IDs of the edges to the neighbors of v (parallel to graph[v]); must not be modified
+     */
+    public int[] edgeIds(int v) {
+        return edgeIds[v];
+    }
+
+    /**
+     * @param edge  edge ID
+     * @return smaller endpoint of the edge
+     */
+    public int source(int edge) {
+        return sources[edge];
+    }
+
+    /**
+     * @param edge  edge ID
+     * @return larger endpoint of the edge
+     */
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * @param u endpoint
+     * @param v endpoint
+     * @return ID of the edge (u, v), or -1 if there is no such edge
+     */
+    public int edgeId(int u, int v) {
+        if(graph[u].length > graph[v].length) {
+            final int temp = u;
+            u = v;
+            v = temp;
+        }
+        final int pos = search(graph[u], 0, v);
+        return pos >= 0 ? edgeIds[u][pos] : -1;
+    }
+
+    /**
+     * binary search in a sorted array starting from a given position
+     * @param array sorted array
+     * @param from  first position to search
+     * @param key   value to find
+     * @return position of key, or -(insertion point)-1 if it is absent
+     */
+    static int search(int[] array, int from, int key) {
+        return search(array, from, array.length - 1, key);
+    }
+
+    /**
+     * galloping search in a sorted array starting from a given position; a sequence of searches for increasing keys
+     * from the previous insertion points costs O(k log(length/k)) for k keys
+     * @param array sorted array
+     * @param from  first position to search
+     * @param key   value to find
+     * @return position of key, or -(insertion point)-1 if it is absent
+     */
+    static int gallop(int[] array, int from, int key) {
+        return Intersect.gallop(array, from, array.length, key);
+    }
+
+    private static int search(int[] array, int lo, int hi, int key) {
+        while(lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if(array[mid] < key) {
+                lo = mid + 1;
+            }
+            else if(array[mid] > key) {
+                hi = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+}
@@ -0,0 +1,313 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parse edge lists directly from memory-mapped byte ranges of a file
+ * Lines starting with '#', '%' or '//' are comments. The first two fields separated by the delimiter are the endpoints.
+ */
+public class EdgeScanner {
+
+    /**
+     * maximum size (in bytes) of a byte range
+     */
+    public static final long MAX_CHUNK_SIZE = 1 << 28;
+
+    /**
+     * Receives the edges of a byte range
+     */
+    public interface Visitor {
+        void edge(int src, int trg);
+    }
+
+    /**
+     * Receives the edges of a byte range with the timestamps in their third fields
+     */
+    public interface TimedVisitor {
+        void edge(int src, int trg, long time);
+    }
+
+    /**
+     * Receives the unparsed endpoints of the edges of a byte range
+     */
+    public interface TokenVisitor {
+        /**
+         * @param buffer    buffer containing the line
+         * @param srcFrom   start of the source token
+         * @param srcTo end of the source token
+         * @param trgFrom   start of the target token
+         * @param trgTo end of the target token
+         */
+        void edge(ByteBuffer buffer, int srcFrom, int srcTo, int trgFrom, int trgTo);
+    }
+
+    private final ByteBuffer buffer;
+
+    private final byte delim;
+
+    private final long base;
+
+    private final boolean verbose;
+
+    private int pos = 0;
+
+    private EdgeScanner(ByteBuffer buffer, byte delim, long base, boolean verbose) {
+        this.buffer = buffer;
+        this.delim = delim;
+        this.base = base;
+        this.verbose = verbose;
+    }
+
+    /**
+     * convert a delimiter to the byte it matches
+     * @param delim delimiter used in the file
+     * @return delimiter byte
+     */
+    public static byte toByte(String delim) {
+        if(delim.length() != 1 || delim.charAt(0) > 127) {
+            throw new IllegalArgumentException("delimiter should be a single ASCII character: \"" + delim + "\"");
+        }
+        return (byte) delim.charAt(0);
+    }
+
+    /**
+     * split a file into byte ranges that start at the beginning of a line
+     * @param channel   file channel
+     * @param minChunks minimum number of ranges
+     * @return boundaries (range i is [boundaries[i], boundaries[i+1]))
+     * @throws IOException
+     */
+    public static long[] split(FileChannel channel, int minChunks) throws IOException {
+        final long size = channel.size();
+        final int chunkNum = (int) Math.max(1, Math.max(minChunks, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE));
+        final long[] boundaries = new long[chunkNum + 1];
+        final ByteBuffer probe = ByteBuffer.allocate(1 << 16);
+        for(int i=1; i<chunkNum; i++) {
+            long boundary = Math.max(boundaries[i-1], size / chunkNum * i);
+            while(boundary > 0 && boundary < size) {
+                probe.clear();
+                final int read = channel.read(probe, boundary - 1);
+                if(read <= 0) {
+                    boundary = size;
+                    break;
+                }
+                int newline = -1;
+                for(int j=0; j<read; j++) {
+                    if(probe.get(j) == '\n') {
+                        newline = j;
+                        break;
+                    }
+                }
+                if(newline >= 0) {
+                    boundary += newline;
+                    break;
+                }
+                boundary += read;
+            }
+            boundaries[i] = Math.min(boundary, size);
+        }
+        boundaries[chunkNum] = size;
+        return boundaries;
+    }
+
+    /**
+     * parse the edges in a byte range of a file
+     * @param channel   file channel
+     * @param start start of the range (beginning of a line)
+     * @param end   end of the range
+     * @param delim delimiter byte
+     * @param visitor   receives each edge, including self-loops, in the order of lines
+     * @param verbose   whether to print ignored lines
+     * @throws IOException
+     */
+    public static void scan(FileChannel channel, long start, long end, byte delim, Visitor visitor, boolean verbose) throws IOException {
+        scan(channel, start, end, delim, visitor, null, null, verbose);
+    }
+
+    /**
+     * parse the edges in a byte range of a file whose lines have a non-negative timestamp as the third field
+     * @param channel   file channel
+     * @param start start of the range (beginning of a line)
+     * @param end   end of the range
+     * @param delim delimiter byte
+     * @param visitor   receives each edge, including self-loops, with its timestamp in the order of lines
+     * @param verbose   whether to print ignored lines
+     * @throws IOException
+     */
+    public static void scanTimed(FileChannel channel, long start, long end, byte delim, TimedVisitor visitor, boolean verbose) throws IOException {
+        scan(channel, start, end, delim, null, null, visitor, verbose);
+    }
+
+    /**
+     * split the edges in a byte range of a file into tokens without parsing them
+     * @param channel   file channel
+     * @param start start of the range (beginning of a line)
+     * @param end   end of the range
+     * @param delim delimiter byte
+     * @param visitor   receives the tokens of each edge in the order of lines
+     * @param verbose   whether to print ignored lines
+     * @throws IOException
+     */
+    public static void scanTokens(FileChannel channel, long start, long end, byte delim, TokenVisitor visitor, boolean verbose) throws IOException {
+        scan(channel, start, end, delim, null, visitor, null, verbose);
+    }
+
+    private static void scan(FileChannel channel, long start, long end, byte delim, Visitor visitor, TokenVisitor tokenVisitor, TimedVisitor timedVisitor, boolean verbose) throws IOException {
+        long from = start;
+        while(from < end) {
+            long to = Math.min(end, from + MAX_CHUNK_SIZE);
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            final EdgeScanner scanner = new EdgeScanner(mapped, delim, from, verbose);
+            final int consumed = scanner.run(visitor, tokenVisitor, timedVisitor, to == end);
+            if(consumed == 0) {
+                throw new IOException("line longer than " + MAX_CHUNK_SIZE + " bytes at byte " + from);
+            }
+            from += consumed;
+        }
+    }
+
+    /**
+     * parse complete lines in the buffer
+     * @param visitor   receives the parsed edges (if not null)
+     * @param tokenVisitor  receives the tokens of edges (if not null)
+     * @param timedVisitor  receives the parsed edges with their timestamps (if not null)
+     * @param last  whether the buffer ends at the end of the range
+     * @return number of bytes consumed
+     */
+    private int run(Visitor visitor, TokenVisitor tokenVisitor, TimedVisitor timedVisitor, boolean last) {
+        final int limit = buffer.limit();
+        while(pos < limit) {
+            final int lineStart = pos;
+            final int eol = endOfLine(pos);
+            if(eol == limit && !last) {
+                return lineStart; // incomplete line; parsed again with the next mapping
+            }
+            final byte first = buffer.get(pos);
+            if(first == '#' || first == '%' || (first == '/' && pos + 1 < eol && buffer.get(pos + 1) == '/')) { //comment
+                if(verbose) {
+                    final byte[] line = new byte[eol - lineStart];
+                    for(int i=0; i<line.length; i++) {
+                        line[i] = buffer.get(lineStart + i);
+                    }
+                    synchronized (System.err) {
+                        System.err.println("The following line was ignored during loading a graph:");
+                        System.err.println(new String(line, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            else if(!isBlank(lineStart, eol)) {
+                int srcEnd = lineStart;
+                while(srcEnd < eol && buffer.get(srcEnd) != delim) {
+                    srcEnd++;
+                }
+                if(srcEnd == eol) {
+                    throw malformed(lineStart);
+                }
+                int trgEnd = srcEnd + 1;
+                while(trgEnd < eol && buffer.get(trgEnd) != delim && buffer.get(trgEnd) != '\r') {
+                    trgEnd++;
+                }
+                if(tokenVisitor != null) {
+                    tokenVisitor.edge(buffer, lineStart, srcEnd, srcEnd + 1, trgEnd);
+                }
+                else if(timedVisitor != null) {
+                    if(trgEnd == eol || buffer.get(trgEnd) != delim) {
+                        throw malformed(lineStart);
+                    }
+                    int timeEnd = trgEnd + 1;
+                    while(timeEnd < eol && buffer.get(timeEnd) != delim && buffer.get(timeEnd) != '\r') {
+                        timeEnd++;
+                    }
+                    final long time = parseLong(buffer, trgEnd + 1, timeEnd);
+                    if(time < 0) {
+                        throw malformed(lineStart);
+                    }
+                    timedVisitor.edge(parseInt(lineStart, srcEnd, lineStart), parseInt(srcEnd + 1, trgEnd, lineStart), time);
+                }
+                else {
+                    final int src = parseInt(lineStart, srcEnd, lineStart);
+                    final int trg = parseInt(srcEnd + 1, trgEnd, lineStart);
+                    visitor.edge(src, trg);
+                }
+            }
+            pos = eol + 1;
+        }
+        return limit;
+    }
+
+    private int endOfLine(int from) {
+        final int limit = buffer.limit();
+        while(from < limit && buffer.get(from) != '\n') {
+            from++;
+        }
+        return from;
+    }
+
+    private boolean isBlank(int from, int to) {
+        return from == to || (to - from == 1 && buffer.get(from) == '\r');
+    }
+
+    /**
+     * parse a non-negative decimal integer in [from, to)
+     */
+    private int parseInt(int from, int to, int lineStart) {
+        final long value = parseLong(buffer, from, to);
+        if(value < 0 || value > Integer.MAX_VALUE) {
+            throw malformed(lineStart);
+        }
+        return (int) value;
+    }
+
+    /**
+     * parse a non-negative decimal integer in [from, to) of a buffer
+     * @param buffer    buffer
+     * @param from  start of the token
+     * @param to    end of the token
+     * @return parsed value, or -1 if the token is not a non-negative 64-bit integer
+     */
+    public static long parseLong(ByteBuffer buffer, int from, int to) {
+        if(from < to && buffer.get(from) == '+') {
+            from++;
+        }
+        if(from == to) {
+            return -1;
+        }
+        long value = 0;
+        for(int i=from; i<to; i++) {
+            final int digit = buffer.get(i) - '0';
+            if(digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private NumberFormatException malformed(int lineStart) {
+        final int eol = endOfLine(lineStart);
+        final byte[] line = new byte[Math.min(eol - lineStart, 200)];
+        for(int i=0; i<line.length; i++) {
+            line[i] = buffer.get(lineStart + i);
+        }
+        return new NumberFormatException("malformed edge at byte " + (base + lineStart) + ": \"" + new String(line, StandardCharsets.UTF_8) + "\"");
+    }
+}
@@ -0,0 +1,206 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel Triangle Enumeration for Edge Supports
+ *
+ * Each edge is oriented from the endpoint with the smaller degree (ties broken by index) to the other one, so every
+ * vertex has O(sqrt(m)) out-neighbors and each triangle is found exactly once, from its lowest-ranked vertex,
+ * in O(m^1.5) total time. Out-neighbors of the current vertex are marked in a thread-local array.
+ */
+public class EdgeSupport {
+
+    /**
+     * number of vertices handled by a single task
+     */
+    private static final int GRAIN = 1 << 8;
+
+    /**
+     * Receives the triangles found by a task
+     */
+    private interface TriangleVisitor {
+        /**
+         * @param v lowest-ranked vertex of the triangle
+         * @param vu    position of (v, u) in the out-neighbors of v
+         * @param vw    position of (v, w) in the out-neighbors of v
+         * @param u out-neighbor of v
+         * @param uw    position of (u, w) in the out-neighbors of u
+         */
+        void triangle(int v, int vu, int vw, int u, int uw);
+    }
+
+    /**
+     * Receives the number of triangles found on each edge (v, u) with u an out-neighbor of v
+     */
+    private interface EdgeCountVisitor {
+        void count(int v, int vu, int count);
+    }
+
+    /**
+     * compute the number of triangles containing each edge
+     * @param index edge index of the input graph
+     * @param threads   number of threads
+     * @return supports of edges (edge ID -> number of triangles)
+     */
+    public static int[] run(final EdgeIndex index, final int threads) {
+        final int[][] graph = index.getGraph();
+        final int n = graph.length;
+        final int[][] out = new int[n][];
+        final int[][] outEdges = new int[n][];
+        final AtomicIntegerArray sups = new AtomicIntegerArray(index.numEdges());
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            orient(pool, graph, index, out, outEdges);
+            enumerate(pool, out, (v, vu, vw, u, uw) -> {
+                sups.incrementAndGet(outEdges[v][vw]);
+                sups.incrementAndGet(outEdges[u][uw]);
+            }, (v, vu, count) -> sups.addAndGet(outEdges[v][vu], count));
+        } finally {
+            pool.shutdown();
+        }
+        final int[] result = new int[index.numEdges()];
+        for(int e=0; e<result.length; e++) {
+            result[e] = sups.get(e);
+        }
+        return result;
+    }
+
+    /**
+     * count the triangles in a graph
+     * @param graph input graph (symmetric, sorted adjacency lists)
+     * @param threads   number of threads
+     * @return number of triangles
+     */
+    public static long countTriangles(final int[][] graph, final int threads) {
+        return countTriangles(graph, threads, null);
+    }
+
+    /**
+     * count the triangles in a graph and those containing each vertex
+     * @param graph input graph (symmetric, sorted adjacency lists)
+     * @param threads   number of threads
+     * @param perVertex array of length graph.length that receives the number of triangles containing each vertex,
+     *                  or null if not needed
+     * @return number of triangles
+     */
+    public static long countTriangles(final int[][] graph, final int threads, final long[] perVertex) {
+        final int n = graph.length;
+        final int[][] out = new int[n][];
+        final AtomicLong total = new AtomicLong(0);
+        final AtomicLongArray counts = perVertex != null ? new AtomicLongArray(n) : null;
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            orient(pool, graph, null, out, null);
+            if(counts == null) {
+                enumerate(pool, out, null, (v, vu, count) -> total.addAndGet(count));
+            }
+            else {
+                enumerate(pool, out, (v, vu, vw, u, uw) -> counts.incrementAndGet(out[u][uw]), (v, vu, count) -> {
+                    total.addAndGet(count);
+                    counts.addAndGet(v, count);
+                    counts.addAndGet(out[v][vu], count);
+                });
+                for(int v=0; v<n; v++) {
+                    perVertex[v] = counts.get(v);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return total.get();
+    }
+
+    /**
+     * keep the out-neighbors of each vertex (and their edge IDs if index is not null)
+     */
+    private static void orient(ForkJoinPool pool, final int[][] graph, final EdgeIndex index, final int[][] out, final int[][] outEdges) {
+        Parallel.forRange(pool, 0, graph.length, GRAIN * 16, (from, to) -> {
+            for(int v=from; v<to; v++) {
+                final int[] neighbors = graph[v];
+                final int degree = neighbors.length;
+                int count = 0;
+                for(int u : neighbors) {
+                    if(before(degree, v, graph[u].length, u)) {
+                        count++;
+                    }
+                }
+                out[v] = new int[count];
+                if(outEdges != null) {
+                    outEdges[v] = new int[count];
+                }
+                count = 0;
+                for(int i=0; i<degree; i++) {
+                    final int u = neighbors[i];
+                    if(before(degree, v, graph[u].length, u)) {
+                        if(outEdges != null) {
+                            outEdges[v][count] = index.edgeIds(v)[i];
+                        }
+                        out[v][count++] = u;
+                    }
+                }
+            }
+        });
+    }
+
+    private static boolean before(int degreeV, int v, int degreeU, int u) {
+        return degreeV < degreeU || (degreeV == degreeU && v < u);
+    }
+
+    private static void enumerate(ForkJoinPool pool, final int[][] out, final TriangleVisitor visitor, final EdgeCountVisitor counter) {
+        final int n = out.length;
+        final ThreadLocal<int[]> markers = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[n];
+            }
+        };
+        Parallel.forRange(pool, 0, n, GRAIN, (from, to) -> {
+            final int[] mark = markers.get(); // out-neighbor -> position in out[v] + 1, or 0
+            for(int v=from; v<to; v++) {
+                final int[] vOut = out[v];
+                for(int i=0; i<vOut.length; i++) {
+                    mark[vOut[i]] = i + 1;
+                }
+                for(int i=0; i<vOut.length; i++) {
+                    final int u = vOut[i];
+                    final int[] uOut = out[u];
+                    int count = 0;
+                    for(int j=0; j<uOut.length; j++) {
+                        final int vw = mark[uOut[j]] - 1;
+                        if(vw >= 0) {
+                            count++;
+                            if(visitor != null) {
+                                visitor.triangle(v, i, vw, u, j);
+                            }
+                        }
+                    }
+                    if(count > 0) {
+                        counter.count(v, i, count);
+                    }
+                }
+                for(int w : vOut) {
+                    mark[w] = 0;
+                }
+            }
+        });
+    }
+}
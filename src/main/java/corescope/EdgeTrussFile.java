@@ -0,0 +1,123 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary side file of edge trussness
+ *
+ * File layout (big-endian):
+ * magic (int), version (int), number of edges (long), then (smaller endpoint, larger endpoint, trussness) as ints
+ * for each edge
+ */
+public class EdgeTrussFile {
+
+    /**
+     * "TRS1"
+     */
+    static final int MAGIC = 0x54525331;
+
+    static final int VERSION = 1;
+
+    /**
+     * write the trussness of edges in edge ID order
+     * @param path  path of the output file
+     * @param index edge index
+     * @param trussness trussness of edges (edge ID -> trussness)
+     * @throws IOException
+     */
+    public static void write(String path, EdgeIndex index, int[] trussness) throws IOException {
+        final int m = index.numEdges();
+        final int[] sources = new int[m];
+        final int[] targets = new int[m];
+        for(int e=0; e<m; e++) {
+            sources[e] = index.source(e);
+            targets[e] = index.target(e);
+        }
+        write(path, m, sources, targets, trussness);
+    }
+
+    /**
+     * write the trussness of edges
+     * @param path  path of the output file
+     * @param count number of edges
+     * @param sources   endpoints of edges
+     * @param targets   other endpoints of edges
+     * @param trussness trussness of edges
+     * @throws IOException
+     */
+    public static void write(String path, int count, int[] sources, int[] targets, int[] trussness) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(count);
+            for(int i=0; i<count; i++) {
+                out.writeInt(Math.min(sources[i], targets[i]));
+                out.writeInt(Math.max(sources[i], targets[i]));
+                out.writeInt(trussness[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * read the trussness of the edges of a graph
+     * @param path  path of the file
+     * @param index edge index of the graph
+     * @return trussness of edges (edge ID -> trussness)
+     * @throws IOException if the file is malformed or does not match the graph
+     */
+    public static int[] read(String path, EdgeIndex index) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+        try {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("not an edge trussness file: " + path);
+            }
+            final int version = in.readInt();
+            if(version != VERSION) {
+                throw new IOException("unsupported edge trussness version " + version + ": " + path);
+            }
+            final long count = in.readLong();
+            if(count != index.numEdges()) {
+                throw new IOException("edge trussness file has " + count + " edges, but the graph has " + index.numEdges() + ": " + path);
+            }
+            final int[] trussness = new int[index.numEdges()];
+            final int n = index.getGraph().length;
+            for(long i=0; i<count; i++) {
+                final int src = in.readInt();
+                final int trg = in.readInt();
+                final int truss = in.readInt();
+                final int edge = src >= 0 && trg >= 0 && src < n && trg < n ? index.edgeId(src, trg) : -1;
+                if(edge < 0) {
+                    throw new IOException("edge (" + src + ", " + trg + ") is not in the graph: " + path);
+                }
+                trussness[edge] = truss;
+            }
+            return trussness;
+        } finally {
+            in.close();
+        }
+    }
+}
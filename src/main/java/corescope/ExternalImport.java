@@ -0,0 +1,550 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Build adjacency lists of an edge list with bounded memory using external sorting
+ *
+ * Both directions of each edge are packed into longs and collected in per-thread buffers.
+ * Full buffers are sorted in parallel and spilled to run files in the temporary directory,
+ * and the runs are merged with a k-way merge that streams the adjacency list of each vertex in order.
+ */
+public class ExternalImport {
+
+    /**
+     * maximum number of runs merged at once
+     */
+    static final int MAX_FAN_IN = 256;
+
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Receives the adjacency lists in the order of vertex indices
+     */
+    interface AdjacencySink {
+        void add(int src, int[] neighbors, int length) throws IOException;
+    }
+
+    private final long memoryBudget;
+
+    private final File tempDir;
+
+    private final int threads;
+
+    private final boolean verbose;
+
+    /**
+     * @param memoryBudget  memory (in bytes) used for buffering edges; half of it holds the per-thread run buffers,
+     *                      which stay in memory as the last runs, and the other half the read buffers of the merge
+     * @param tempDir   directory for temporary run files
+     * @param threads   number of threads parsing and sorting runs, at most MAX_FAN_IN / 2 (larger values are capped)
+     * @param verbose   whether to print progress
+     */
+    public ExternalImport(long memoryBudget, String tempDir, int threads, boolean verbose) {
+        // each thread leaves an in-memory run, which must fit in the final merge with the spilled runs
+        threads = Math.max(1, Math.min(threads, MAX_FAN_IN / 2));
+        if(memoryBudget < 16L * threads * 1024) {
+            throw new IllegalArgumentException("memory budget is too small: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        this.tempDir = new File(tempDir);
+        this.threads = threads;
+        this.verbose = verbose;
+    }
+
+    /**
+     * @return default memory budget (a quarter of the maximum heap size)
+     */
+    public static long defaultMemoryBudget() {
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    /**
+     * @return default directory for temporary files
+     */
+    public static String defaultTempDir() {
+        return System.getProperty("java.io.tmpdir");
+    }
+
+    /**
+     * load an input graph in memory
+     * @param path  path of the input graph file
+     * @param delim delimiter used in the file
+     * @return graph (vertex index -> sorted neighbors)
+     * @throws IOException
+     */
+    public int[][] load(String path, String delim) throws IOException {
+        final Runs runs = sortRuns(path, delim);
+        final int[][] result = new int[runs.maxNum + 1][];
+        merge(runs, (src, neighbors, length) -> result[src] = Arrays.copyOf(neighbors, length));
+        for(int i=0; i<result.length; i++) {
+            if(result[i] == null) {
+                result[i] = Import.EMPTY;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * convert an input graph to the binary CSR format
+     * @param path  path of the input graph file
+     * @param delim delimiter used in the file
+     * @param output    path of the CSR file
+     * @throws IOException
+     */
+    public void toCSR(String path, String delim, String output) throws IOException {
+        final Runs runs = sortRuns(path, delim);
+        final CSRWriter writer = new CSRWriter(output, runs.maxNum + 1);
+        final int[] next = new int[1];
+        merge(runs, (src, neighbors, length) -> {
+            while(next[0] < src) {
+                writer.add(neighbors, 0, 0);
+                next[0]++;
+            }
+            writer.add(neighbors, 0, length);
+            next[0]++;
+        });
+        writer.close();
+    }
+
+    /**
+     * Sorted runs of packed edges
+     */
+    private static final class Runs {
+
+        final List<File> files = new ArrayList<File>();
+
+        final List<RunReader> arrays = new ArrayList<RunReader>();
+
+        int maxNum = 0;
+
+        long entries = 0;
+    }
+
+    /**
+     * Parse a file into sorted runs
+     */
+    private Runs sortRuns(String path, String delim) throws IOException {
+
+        if(verbose)
+            System.err.println("sorting runs...: " + path);
+
+        final byte delimByte = EdgeScanner.toByte(delim);
+        final int bufferLength = (int) Math.min(Integer.MAX_VALUE - 8, memoryBudget / 2 / 8 / threads);
+        final Runs runs = new Runs();
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            final long[] boundaries = EdgeScanner.split(channel, threads * 4);
+            final AtomicInteger nextChunk = new AtomicInteger(0);
+            final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            for(int t=0; t<threads; t++) {
+                tasks.add(() -> {
+                    final RunBuffer buffer = new RunBuffer(bufferLength, runs);
+                    for(int chunk = nextChunk.getAndIncrement(); chunk < boundaries.length - 1; chunk = nextChunk.getAndIncrement()) {
+                        EdgeScanner.scan(channel, boundaries[chunk], boundaries[chunk + 1], delimByte, buffer, verbose);
+                    }
+                    buffer.finish();
+                    return null;
+                });
+            }
+            Parallel.invokeAll(pool, tasks);
+        } finally {
+            file.close();
+            pool.shutdown();
+        }
+
+        if(verbose)
+            System.err.println(runs.files.size() + " runs were spilled (" + runs.entries + " entries).");
+
+        return runs;
+    }
+
+    /**
+     * Per-thread buffer of packed edges that is spilled to a run file when full
+     */
+    private final class RunBuffer implements EdgeScanner.Visitor {
+
+        private final long[] buffer;
+
+        private final Runs runs;
+
+        private int size = 0;
+
+        private int maxNum = 0;
+
+        private long entries = 0;
+
+        RunBuffer(int length, Runs runs) {
+            this.buffer = new long[length - length % 2];
+            this.runs = runs;
+        }
+
+        @Override
+        public void edge(int src, int trg) {
+            if(src == trg)
+                return;
+            if(size == buffer.length) {
+                try {
+                    spill();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            buffer[size++] = pack(src, trg);
+            buffer[size++] = pack(trg, src);
+            maxNum = Math.max(maxNum, Math.max(src, trg));
+        }
+
+        private void spill() throws IOException {
+            final int length = sortUnique(buffer, size);
+            final File run = File.createTempFile("corescope-run", ".bin", tempDir);
+            run.deleteOnExit();
+            writeRun(run, buffer, length);
+            entries += length;
+            size = 0;
+            synchronized (runs) {
+                runs.files.add(run);
+            }
+        }
+
+        void finish() {
+            final int length = sortUnique(buffer, size);
+            entries += length;
+            synchronized (runs) {
+                if(length > 0) {
+                    runs.arrays.add(new RunReader(buffer, length)); // in-memory run
+                }
+                runs.maxNum = Math.max(runs.maxNum, maxNum);
+                runs.entries += entries;
+            }
+        }
+    }
+
+    private static long pack(int src, int trg) {
+        return (((long) src) << 32) | trg;
+    }
+
+    /**
+     * sort a prefix of an array and remove duplicates
+     * @return length of the deduplicated prefix
+     */
+    private static int sortUnique(long[] array, int size) {
+        Arrays.sort(array, 0, size);
+        int length = 0;
+        for(int i=0; i<size; i++) {
+            if(i == 0 || array[i] != array[i-1]) {
+                array[length++] = array[i];
+            }
+        }
+        return length;
+    }
+
+    private static void writeRun(File run, long[] array, int length) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(run, "rw");
+        try {
+            final FileChannel channel = file.getChannel();
+            final ByteBuffer bytes = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+            final LongBuffer longs = bytes.asLongBuffer();
+            for(int i=0; i<length; ) {
+                final int len = Math.min(longs.capacity(), length - i);
+                longs.clear();
+                longs.put(array, i, len);
+                bytes.clear();
+                bytes.limit(len * 8);
+                while(bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                i += len;
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Sequential reader of a sorted run
+     */
+    private static final class RunReader {
+
+        private final long[] array;
+
+        private final RandomAccessFile file;
+
+        private final ByteBuffer bytes;
+
+        private final LongBuffer longs;
+
+        private int pos = 0;
+
+        private int limit = 0;
+
+        RunReader(long[] array, int length) {
+            this.array = array;
+            this.file = null;
+            this.bytes = null;
+            this.longs = null;
+            this.limit = length;
+        }
+
+        RunReader(File run, int bufferSize) throws IOException {
+            this.array = null;
+            this.file = new RandomAccessFile(run, "r");
+            this.bytes = ByteBuffer.allocateDirect(bufferSize - bufferSize % 8);
+            this.longs = bytes.asLongBuffer();
+        }
+
+        /**
+         * @return whether a value is available, refilling the buffer if needed
+         */
+        boolean hasNext() throws IOException {
+            if(pos < limit) {
+                return true;
+            }
+            if(file == null) {
+                return false;
+            }
+            bytes.clear();
+            final FileChannel channel = file.getChannel();
+            while(bytes.hasRemaining() && channel.read(bytes) > 0) {
+            }
+            pos = 0;
+            limit = bytes.position() / 8;
+            return limit > 0;
+        }
+
+        long next() {
+            return array != null ? array[pos++] : longs.get(pos++);
+        }
+
+        void close() throws IOException {
+            if(file != null) {
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * merge the runs and stream deduplicated adjacency lists in the order of vertex indices
+     */
+    private void merge(Runs runs, AdjacencySink sink) throws IOException {
+
+        while(runs.files.size() + runs.arrays.size() > MAX_FAN_IN) {
+            mergeLevel(runs);
+        }
+
+        if(verbose)
+            System.err.println("merging runs...");
+
+        final List<RunReader> readers = openReaders(runs.files, runs.arrays);
+        try {
+            int[] neighbors = new int[1024];
+            int length = 0;
+            int previousSrc = -1;
+            final MergeHeap heap = new MergeHeap(readers);
+            long previous = -1;
+            while(!heap.isEmpty()) {
+                final long entry = heap.poll();
+                if(entry == previous) {
+                    continue;
+                }
+                previous = entry;
+                final int src = (int) (entry >>> 32);
+                if(src != previousSrc) {
+                    if(previousSrc >= 0) {
+                        sink.add(previousSrc, neighbors, length);
+                    }
+                    previousSrc = src;
+                    length = 0;
+                }
+                if(length == neighbors.length) {
+                    neighbors = Arrays.copyOf(neighbors, length * 2);
+                }
+                neighbors[length++] = (int) entry;
+            }
+            if(previousSrc >= 0) {
+                sink.add(previousSrc, neighbors, length);
+            }
+        } finally {
+            for(RunReader reader : readers) {
+                reader.close();
+            }
+            for(File run : runs.files) {
+                run.delete(); //remove temporary file
+            }
+        }
+
+        if(verbose)
+            System.err.println("graph was loaded.");
+    }
+
+    /**
+     * merge groups of spilled runs into larger runs; since there are at most MAX_FAN_IN / 2 in-memory runs,
+     * repeating this until at most MAX_FAN_IN runs remain terminates
+     */
+    private void mergeLevel(Runs runs) throws IOException {
+
+        if(verbose)
+            System.err.println("merging " + runs.files.size() + " runs into larger runs...");
+
+        final List<File> merged = new ArrayList<File>();
+        for(int start=0; start<runs.files.size(); start+=MAX_FAN_IN) {
+            final List<File> group = runs.files.subList(start, Math.min(runs.files.size(), start + MAX_FAN_IN));
+            final File run = File.createTempFile("corescope-run", ".bin", tempDir);
+            run.deleteOnExit();
+            final List<RunReader> readers = openReaders(group, new ArrayList<RunReader>());
+            final RandomAccessFile file = new RandomAccessFile(run, "rw");
+            try {
+                final FileChannel channel = file.getChannel();
+                final ByteBuffer bytes = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+                final MergeHeap heap = new MergeHeap(readers);
+                long previous = -1;
+                while(!heap.isEmpty()) {
+                    final long entry = heap.poll();
+                    if(entry == previous) {
+                        continue;
+                    }
+                    previous = entry;
+                    if(!bytes.hasRemaining()) {
+                        bytes.flip();
+                        while(bytes.hasRemaining()) {
+                            channel.write(bytes);
+                        }
+                        bytes.clear();
+                    }
+                    bytes.putLong(entry);
+                }
+                bytes.flip();
+                while(bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            } finally {
+                file.close();
+                for(RunReader reader : readers) {
+                    reader.close();
+                }
+                for(File input : group) {
+                    input.delete();
+                }
+            }
+            merged.add(run);
+        }
+        runs.files.clear();
+        runs.files.addAll(merged);
+    }
+
+    private List<RunReader> openReaders(List<File> files, List<RunReader> arrays) throws IOException {
+        final int bufferSize = (int) Math.max(1 << 12, Math.min(IO_BUFFER_SIZE, memoryBudget / 2 / Math.max(1, files.size())));
+        final List<RunReader> readers = new ArrayList<RunReader>(arrays);
+        for(File file : files) {
+            readers.add(new RunReader(file, bufferSize));
+        }
+        return readers;
+    }
+
+    /**
+     * Binary min-heap over the heads of runs
+     */
+    private static final class MergeHeap {
+
+        private final RunReader[] readers;
+
+        private final long[] heads;
+
+        private final int[] heap;
+
+        private int size = 0;
+
+        MergeHeap(List<RunReader> readers) throws IOException {
+            this.readers = readers.toArray(new RunReader[readers.size()]);
+            this.heads = new long[this.readers.length];
+            this.heap = new int[this.readers.length];
+            for(int i=0; i<this.readers.length; i++) {
+                if(this.readers[i].hasNext()) {
+                    heads[i] = this.readers[i].next();
+                    heap[size] = i;
+                    siftUp(size++);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long poll() throws IOException {
+            final int top = heap[0];
+            final long value = heads[top];
+            if(readers[top].hasNext()) {
+                heads[top] = readers[top].next();
+            }
+            else {
+                heap[0] = heap[--size];
+            }
+            if(size > 0) {
+                siftDown(0);
+            }
+            return value;
+        }
+
+        private void siftUp(int pos) {
+            final int run = heap[pos];
+            while(pos > 0) {
+                final int parent = (pos - 1) >>> 1;
+                if(heads[heap[parent]] <= heads[run]) {
+                    break;
+                }
+                heap[pos] = heap[parent];
+                pos = parent;
+            }
+            heap[pos] = run;
+        }
+
+        private void siftDown(int pos) {
+            final int run = heap[pos];
+            while(true) {
+                int child = 2 * pos + 1;
+                if(child >= size) {
+                    break;
+                }
+                if(child + 1 < size && heads[heap[child + 1]] < heads[heap[child]]) {
+                    child++;
+                }
+                if(heads[heap[child]] >= heads[run]) {
+                    break;
+                }
+                heap[pos] = heap[child];
+                pos = child;
+            }
+            heap[pos] = run;
+        }
+    }
+}
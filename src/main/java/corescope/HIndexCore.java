@@ -0,0 +1,179 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coreness Estimation by Iterated h-Indices
+ *
+ * Locality-based estimation (Montresor et al.): each estimate starts at the degree and is repeatedly replaced by the
+ * h-index of the neighbors' estimates. Estimates are always upper bounds of the corenesses, never increase, and
+ * converge to the corenesses. Sweeps are asynchronous: a vertex reads the latest estimates of its neighbors,
+ * including those updated earlier in the same sweep, and only vertices with a changed neighbor are recomputed.
+ */
+public class HIndexCore {
+
+    /**
+     * number of vertices handled by a single task
+     */
+    private static final int GRAIN = 1 << 12;
+
+    /**
+     * Receives the intermediate estimates after each sweep
+     */
+    public interface SweepListener {
+        /**
+         * @param sweep number of sweeps done so far
+         * @param upperBounds   current estimates (vertex index -> upper bound of coreness); must not be modified
+         * @param changed   number of estimates changed by the sweep
+         */
+        void sweep(int sweep, int[] upperBounds, int changed);
+    }
+
+    /**
+     * compute the corenesses of vertices by iterating until convergence
+     * @param graph input graph
+     * @param verbose whether to print progress
+     * @return corenesses of vertices (vertex index -> coreness), identical to {@link CoreDecomp#run(int[][], boolean)}
+     */
+    public static int[] run(int[][] graph, boolean verbose) {
+        return run(graph, Parallel.defaultThreads(), Integer.MAX_VALUE, Long.MAX_VALUE, null, verbose);
+    }
+
+    /**
+     * estimate the corenesses of vertices within a budget
+     * @param graph input graph
+     * @param threads   number of threads
+     * @param maxSweeps maximum number of sweeps
+     * @param timeBudget    maximum running time in milliseconds (checked after each sweep)
+     * @param listener  receives the estimates after each sweep (can be null)
+     * @param verbose whether to print progress
+     * @return upper bounds of corenesses (vertex index -> estimate), exact if converged within the budget
+     */
+    public static int[] run(final int[][] graph, final int threads, final int maxSweeps, final long timeBudget,
+                            final SweepListener listener, final boolean verbose) {
+
+        if(verbose)
+            System.err.println("estimating corenesses by h-indices with " + threads + " threads...");
+
+        final long startTime = System.currentTimeMillis();
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            final int n = graph.length;
+            final int[] estimates = new int[n];
+            final boolean[] active = new boolean[n];
+            int maxDegree = 0;
+            for(int i=0; i<n; i++) {
+                estimates[i] = graph[i].length;
+                active[i] = true;
+                maxDegree = Math.max(maxDegree, estimates[i]);
+            }
+            final ThreadLocal<int[]> counts = newCounts(maxDegree);
+
+            boolean converged = false;
+            boolean verifying = false;
+            int sweep = 0;
+            while(sweep < maxSweeps) {
+                final boolean all = verifying;
+                final AtomicInteger changed = new AtomicInteger(0);
+                Parallel.forRange(pool, 0, n, GRAIN, (from, to) -> {
+                    final int[] count = counts.get();
+                    int localChanged = 0;
+                    for(int v=from; v<to; v++) {
+                        if(!all && !active[v]) {
+                            continue;
+                        }
+                        active[v] = false;
+                        final int estimate = hIndex(graph[v], estimates, estimates[v], count);
+                        if(estimate < estimates[v]) {
+                            estimates[v] = estimate;
+                            localChanged++;
+                            for(int u : graph[v]) {
+                                if(estimates[u] > estimate) {
+                                    active[u] = true; // u may depend on the old estimate of v
+                                }
+                            }
+                        }
+                    }
+                    changed.addAndGet(localChanged);
+                });
+                sweep++;
+
+                if(verbose)
+                    System.err.println("Sweep " + sweep + ": " + changed.get() + " estimates changed (" + (System.currentTimeMillis() - startTime) + "ms)");
+
+                if(listener != null)
+                    listener.sweep(sweep, estimates, changed.get());
+
+                if(changed.get() == 0) {
+                    if(verifying) {
+                        converged = true;
+                        break;
+                    }
+                    verifying = true; // recompute every vertex once so that no missed activation is taken as convergence
+                }
+                else {
+                    verifying = false;
+                }
+                if(System.currentTimeMillis() - startTime >= timeBudget) {
+                    break;
+                }
+            }
+
+            if(verbose)
+                System.err.println((converged ? "Corenesses converged" : "Budget exhausted") + " after " + sweep + " sweeps... (" + (System.currentTimeMillis() - startTime) + "ms)");
+
+            return estimates;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param neighbors neighbors of a vertex
+     * @param estimates current estimates
+     * @param bound current estimate of the vertex
+     * @param count scratch array of size at least bound + 1
+     * @return largest h <= bound such that at least h neighbors have estimates at least h
+     */
+    private static int hIndex(int[] neighbors, int[] estimates, int bound, int[] count) {
+        for(int h=0; h<=bound; h++) {
+            count[h] = 0;
+        }
+        for(int u : neighbors) {
+            count[Math.min(estimates[u], bound)]++;
+        }
+        int atLeast = 0;
+        for(int h=bound; h>0; h--) {
+            atLeast += count[h];
+            if(atLeast >= h) {
+                return h;
+            }
+        }
+        return 0;
+    }
+
+    private static ThreadLocal<int[]> newCounts(final int maxDegree) {
+        return new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[maxDegree + 1];
+            }
+        };
+    }
+}
@@ -0,0 +1,403 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dictionary between original vertex IDs and dense vertex indices
+ *
+ * Indices are assigned in the order of first appearance. Original IDs are kept in a memory-mapped temporary file,
+ * so the heap only holds the open-addressing table used while the dictionary is built.
+ */
+public class IdDictionary {
+
+    /**
+     * Type of original vertex IDs
+     */
+    public enum Type {
+        /**
+         * non-negative 32-bit integers used as indices without remapping
+         */
+        INT,
+        /**
+         * non-negative 64-bit integers
+         */
+        LONG,
+        /**
+         * arbitrary strings
+         */
+        STRING;
+
+        /**
+         * @param name  one of [int, long, string] (case-insensitive)
+         * @return type
+         */
+        public static Type parse(String name) {
+            for(Type type : values()) {
+                if(type.name().compareToIgnoreCase(name) == 0) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown ID type: " + name);
+        }
+    }
+
+    /**
+     * log2 of the number of longs in a chunk of the value area
+     */
+    private static final int VALUE_CHUNK_BITS = 24;
+
+    /**
+     * log2 of the number of bytes in a chunk of the string area
+     */
+    private static final int BYTE_CHUNK_BITS = 27;
+
+    private static final int EMPTY_SLOT = -1;
+
+    private static final IdDictionary IDENTITY = new IdDictionary(Type.INT);
+
+    private final Type type;
+
+    /**
+     * memory-mapped files of the value area and the string area
+     */
+    private final File[] paths;
+
+    private final RandomAccessFile[] files;
+
+    /**
+     * index -> original ID (LONG) or position of the original ID in the string area (STRING)
+     */
+    private final List<LongBuffer> values = new ArrayList<LongBuffer>();
+
+    /**
+     * length-prefixed UTF-8 bytes of original IDs (STRING)
+     */
+    private final List<ByteBuffer> bytes = new ArrayList<ByteBuffer>();
+
+    private long bytePosition = 0;
+
+    private int size = 0;
+
+    /**
+     * open-addressing table (slot -> index), null once the dictionary is frozen
+     */
+    private int[] slots;
+
+    private IdDictionary(Type type) {
+        this.type = type;
+        this.paths = new File[0];
+        this.files = new RandomAccessFile[0];
+    }
+
+    private IdDictionary(Type type, File[] paths) throws IOException {
+        this.type = type;
+        this.paths = paths;
+        this.files = new RandomAccessFile[paths.length];
+        for(int i=0; i<paths.length; i++) {
+            paths[i].deleteOnExit();
+            files[i] = new RandomAccessFile(paths[i], "rw");
+        }
+        this.slots = new int[1 << 10];
+        Arrays.fill(slots, EMPTY_SLOT);
+    }
+
+    /**
+     * @return dictionary mapping each index to itself
+     */
+    public static IdDictionary identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * create an empty dictionary
+     * @param type  type of original IDs (LONG or STRING)
+     * @param tempDir   directory for the memory-mapped file
+     * @return dictionary
+     * @throws IOException
+     */
+    public static IdDictionary create(Type type, String tempDir) throws IOException {
+        if(type == Type.INT) {
+            return identity();
+        }
+        final File dir = new File(tempDir);
+        final File[] paths = new File[type == Type.STRING ? 2 : 1];
+        for(int i=0; i<paths.length; i++) {
+            paths[i] = File.createTempFile("corescope-ids", ".bin", dir);
+        }
+        return new IdDictionary(type, paths);
+    }
+
+    /**
+     * @return type of original IDs
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return number of indices assigned so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * get the index of an original ID stored in a buffer, assigning a new index if the ID is new
+     * @param buffer    buffer
+     * @param from  start of the ID
+     * @param to    end of the ID
+     * @return index
+     * @throws IOException
+     */
+    public int index(ByteBuffer buffer, int from, int to) throws IOException {
+        if(type == Type.LONG) {
+            final long id = EdgeScanner.parseLong(buffer, from, to);
+            if(id < 0) {
+                throw new NumberFormatException("not a non-negative 64-bit integer: \"" + toString(buffer, from, to) + "\"");
+            }
+            return index(id);
+        }
+        else if(type == Type.INT) {
+            final long id = EdgeScanner.parseLong(buffer, from, to);
+            if(id < 0 || id > Integer.MAX_VALUE) {
+                throw new NumberFormatException("not a non-negative 32-bit integer: \"" + toString(buffer, from, to) + "\"");
+            }
+            return (int) id;
+        }
+
+        checkMutable();
+        final int hash = hash(buffer, from, to);
+        int slot = hash & (slots.length - 1);
+        while(slots[slot] != EMPTY_SLOT) {
+            if(equals(slots[slot], buffer, from, to)) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        final int index = append(buffer, from, to);
+        slots[slot] = index;
+        growIfFull();
+        return index;
+    }
+
+    /**
+     * get the index of a numeric original ID, assigning a new index if the ID is new
+     * @param id    original ID
+     * @return index
+     * @throws IOException
+     */
+    public int index(long id) throws IOException {
+        if(type == Type.INT) {
+            return (int) id;
+        }
+        if(type != Type.LONG) {
+            throw new IllegalStateException("numeric IDs in a " + type + " dictionary");
+        }
+        checkMutable();
+        int slot = mix(id) & (slots.length - 1);
+        while(slots[slot] != EMPTY_SLOT) {
+            if(getValue(slots[slot]) == id) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        final int index = size;
+        putValue(index, id);
+        size++;
+        slots[slot] = index;
+        growIfFull();
+        return index;
+    }
+
+    /**
+     * release the table used for assigning indices; no new ID can be added afterwards
+     */
+    public void freeze() {
+        slots = null;
+    }
+
+    /**
+     * @param index vertex index
+     * @return original ID of the vertex
+     */
+    public String toOriginal(int index) {
+        if(type == Type.INT) {
+            return String.valueOf(index);
+        }
+        else if(type == Type.LONG) {
+            return String.valueOf(getValue(index));
+        }
+        final long position = getValue(index);
+        final ByteBuffer chunk = bytes.get((int) (position >>> BYTE_CHUNK_BITS));
+        final int offset = (int) (position & ((1L << BYTE_CHUNK_BITS) - 1));
+        final byte[] result = new byte[chunk.getInt(offset)];
+        for(int i=0; i<result.length; i++) {
+            result[i] = chunk.get(offset + 4 + i);
+        }
+        return new String(result, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param index vertex index
+     * @return numeric original ID of the vertex
+     */
+    public long toLong(int index) {
+        if(type == Type.INT) {
+            return index;
+        }
+        else if(type == Type.LONG) {
+            return getValue(index);
+        }
+        throw new IllegalStateException("numeric IDs in a " + type + " dictionary");
+    }
+
+    /**
+     * close and delete the memory-mapped file
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        for(int i=0; i<files.length; i++) {
+            files[i].close();
+            paths[i].delete();
+        }
+    }
+
+    private void checkMutable() {
+        if(slots == null) {
+            throw new IllegalStateException("dictionary is frozen");
+        }
+    }
+
+    private long getValue(int index) {
+        return values.get(index >>> VALUE_CHUNK_BITS).get(index & ((1 << VALUE_CHUNK_BITS) - 1));
+    }
+
+    private void putValue(int index, long value) throws IOException {
+        final int chunk = index >>> VALUE_CHUNK_BITS;
+        if(chunk == values.size()) {
+            final long chunkBytes = 8L << VALUE_CHUNK_BITS;
+            values.add(files[0].getChannel().map(FileChannel.MapMode.READ_WRITE, chunk * chunkBytes, chunkBytes).asLongBuffer());
+        }
+        values.get(chunk).put(index & ((1 << VALUE_CHUNK_BITS) - 1), value);
+    }
+
+    /**
+     * append a string ID to the string area
+     * @return index of the ID
+     */
+    private int append(ByteBuffer buffer, int from, int to) throws IOException {
+        final int length = to - from;
+        final long chunkBytes = 1L << BYTE_CHUNK_BITS;
+        if(length + 4 > chunkBytes) {
+            throw new IOException("vertex ID longer than " + (chunkBytes - 4) + " bytes");
+        }
+        if((bytePosition & (chunkBytes - 1)) + length + 4 > chunkBytes) {
+            bytePosition = (bytePosition | (chunkBytes - 1)) + 1; // move to the next chunk
+        }
+        final int chunk = (int) (bytePosition >>> BYTE_CHUNK_BITS);
+        while(bytes.size() <= chunk) {
+            bytes.add(files[1].getChannel().map(FileChannel.MapMode.READ_WRITE, bytes.size() * chunkBytes, chunkBytes));
+        }
+        final ByteBuffer target = bytes.get(chunk);
+        final int offset = (int) (bytePosition & (chunkBytes - 1));
+        target.putInt(offset, length);
+        for(int i=0; i<length; i++) {
+            target.put(offset + 4 + i, buffer.get(from + i));
+        }
+        final int index = size;
+        putValue(index, bytePosition);
+        bytePosition += length + 4;
+        size++;
+        return index;
+    }
+
+    private boolean equals(int index, ByteBuffer buffer, int from, int to) {
+        final long position = getValue(index);
+        final ByteBuffer chunk = bytes.get((int) (position >>> BYTE_CHUNK_BITS));
+        final int offset = (int) (position & ((1L << BYTE_CHUNK_BITS) - 1));
+        if(chunk.getInt(offset) != to - from) {
+            return false;
+        }
+        for(int i=0; i<to-from; i++) {
+            if(chunk.get(offset + 4 + i) != buffer.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * double the table when it is half full
+     */
+    private void growIfFull() {
+        if(size * 2 < slots.length) {
+            return;
+        }
+        final int[] newSlots = new int[slots.length * 2];
+        Arrays.fill(newSlots, EMPTY_SLOT);
+        for(int index=0; index<size; index++) {
+            int slot = hashOf(index) & (newSlots.length - 1);
+            while(newSlots[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & (newSlots.length - 1);
+            }
+            newSlots[slot] = index;
+        }
+        slots = newSlots;
+    }
+
+    private int hashOf(int index) {
+        if(type == Type.LONG) {
+            return mix(getValue(index));
+        }
+        final long position = getValue(index);
+        final ByteBuffer chunk = bytes.get((int) (position >>> BYTE_CHUNK_BITS));
+        final int offset = (int) (position & ((1L << BYTE_CHUNK_BITS) - 1));
+        return hash(chunk, offset + 4, offset + 4 + chunk.getInt(offset));
+    }
+
+    private static int hash(ByteBuffer buffer, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for(int i=from; i<to; i++) {
+            h = (h ^ (buffer.get(i) & 0xff)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static int mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+        x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (x ^ (x >>> 33));
+    }
+
+    private static String toString(ByteBuffer buffer, int from, int to) {
+        final byte[] token = new byte[to - from];
+        for(int i=0; i<token.length; i++) {
+            token[i] = buffer.get(from + i);
+        }
+        return new String(token, StandardCharsets.UTF_8);
+    }
+}
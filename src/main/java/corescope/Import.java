@@ -16,7 +16,12 @@
 package corescope;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Load an input graph in memory
@@ -24,7 +29,10 @@ import java.util.*;
  */
 public class Import {
 
-    final static int linePerFile = 30000000;
+    /**
+     * adjacency list shared by all isolated vertices
+     */
+    static final int[] EMPTY = new int[0];
 
     /**
      * load an input graph in memory
@@ -47,208 +55,266 @@ public class Import {
      */
     public static int[][] load(String path, String delim, final boolean verbose) throws IOException {
 
+        if(CSRGraph.isCSR(path)) {
+            return loadCSR(path, verbose).toAdjacencyLists();
+        }
+
         if(verbose)
             System.err.println("loading graph...: "+ path);
 
-        final Map<Integer, Set<Integer>> idToNeighbors = new HashMap();
-
-        int maxNum = 0;
-        final BufferedReader br = new BufferedReader(new FileReader(path));
-        while(true) {
-            final String line = br.readLine();
-            if(line == null) {
-                break;
+        final byte delimByte = EdgeScanner.toByte(delim);
+        final ForkJoinPool pool = new ForkJoinPool(Parallel.defaultThreads());
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            // parse byte ranges of the file in parallel
+            final FileChannel channel = file.getChannel();
+            final long[] boundaries = EdgeScanner.split(channel, pool.getParallelism() * 4);
+            final EdgeBuffer[] buffers = new EdgeBuffer[boundaries.length - 1];
+            final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            for(int i=0; i<buffers.length; i++) {
+                final int chunk = i;
+                tasks.add(() -> {
+                    final EdgeBuffer buffer = new EdgeBuffer();
+                    EdgeScanner.scan(channel, boundaries[chunk], boundaries[chunk + 1], delimByte, buffer, verbose);
+                    buffers[chunk] = buffer;
+                    return null;
+                });
             }
-            else if(line.startsWith("#") || line.startsWith("%") || line.startsWith("//")) { //comment
+            Parallel.invokeAll(pool, tasks);
 
-                if(verbose) {
-                    System.err.println("The following line was ignored during loading a graph:");
-                    System.err.println(line);
-                }
-                continue;
+            final int[][] results = toAdjacencyLists(buffers, pool);
+
+            if(verbose)
+                System.err.println("graph was loaded.: "+ path);
+
+            return results;
+        } finally {
+            file.close();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * load an input graph in memory, remapping original vertex IDs to dense indices
+     * @param path  path of the input graph file
+     * @param delim delimiter used in the file
+     * @param type  type of original IDs (INT keeps the IDs as indices)
+     * @param verbose whether to print logs
+     * @return graph, dictionary (index -> original ID)
+     * @throws IOException
+     */
+    public static Pair<int[][], IdDictionary> load(String path, String delim, IdDictionary.Type type, final boolean verbose) throws IOException {
+
+        if(type == IdDictionary.Type.INT || CSRGraph.isCSR(path)) {
+            return new Pair(load(path, delim, verbose), IdDictionary.identity());
+        }
+
+        if(verbose)
+            System.err.println("loading graph with " + type + " IDs...: "+ path);
+
+        final byte delimByte = EdgeScanner.toByte(delim);
+        final IdDictionary dictionary = IdDictionary.create(type, ExternalImport.defaultTempDir());
+        final EdgeBuffer buffer = new EdgeBuffer();
+        final ForkJoinPool pool = new ForkJoinPool(Parallel.defaultThreads());
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            // indices are assigned sequentially in the order of first appearance
+            final FileChannel channel = file.getChannel();
+            final long[] boundaries = EdgeScanner.split(channel, 1);
+            for(int i=0; i<boundaries.length-1; i++) {
+                EdgeScanner.scanTokens(channel, boundaries[i], boundaries[i+1], delimByte, (bytes, srcFrom, srcTo, trgFrom, trgTo) -> {
+                    if(sameToken(type, bytes, srcFrom, srcTo, trgFrom, trgTo))
+                        return; // self-loop
+                    try {
+                        buffer.edge(dictionary.index(bytes, srcFrom, srcTo), dictionary.index(bytes, trgFrom, trgTo));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, verbose);
             }
-            else {
-                String[] tokens = line.split(delim);
-                int src = Integer.valueOf(tokens[0]);
-                int trg = Integer.valueOf(tokens[1]);
+            dictionary.freeze();
 
-                if(src==trg)
-                    continue;
+            final int[][] results = dictionary.size() == 0 ? new int[0][] : toAdjacencyLists(new EdgeBuffer[]{buffer}, pool);
 
-                if(!idToNeighbors.containsKey(src)) {
-                    idToNeighbors.put(src, new TreeSet());
-                }
-                idToNeighbors.get(src).add(trg);
-                if (!idToNeighbors.containsKey(trg)) {
-                    idToNeighbors.put(trg, new TreeSet());
-                }
-                idToNeighbors.get(trg).add(src);
-                maxNum = Math.max(src, maxNum);
-                maxNum = Math.max(trg, maxNum);
+            if(verbose)
+                System.err.println("graph was loaded.: "+ path + " (" + dictionary.size() + " vertices)");
+
+            return new Pair(results, dictionary);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            file.close();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * check whether two tokens denote the same vertex
+     */
+    private static boolean sameToken(IdDictionary.Type type, ByteBuffer bytes, int srcFrom, int srcTo, int trgFrom, int trgTo) {
+        if(type == IdDictionary.Type.LONG) {
+            final long src = EdgeScanner.parseLong(bytes, srcFrom, srcTo);
+            return src >= 0 && src == EdgeScanner.parseLong(bytes, trgFrom, trgTo);
+        }
+        if(srcTo - srcFrom != trgTo - trgFrom) {
+            return false;
+        }
+        for(int i=0; i<srcTo-srcFrom; i++) {
+            if(bytes.get(srcFrom + i) != bytes.get(trgFrom + i)) {
+                return false;
             }
         }
+        return true;
+    }
 
-        int[][] results = new int[maxNum+1][];
+    /**
+     * build deduplicated sorted adjacency lists from parsed edges
+     * @param buffers   parsed edges (self-loops excluded)
+     * @param pool  pool to run the build on
+     * @return graph (vertex index -> sorted neighbors)
+     */
+    static int[][] toAdjacencyLists(final EdgeBuffer[] buffers, final ForkJoinPool pool) {
 
-        for(int i=0; i<results.length; i++) {
-            if(idToNeighbors.containsKey(i)) {
-                results[i] = new int[idToNeighbors.get(i).size()];
-                int j=0;
-                for(int neighbor : idToNeighbors.get(i)) {
-                    results[i][j++] = neighbor;
+        int maxNum = 0;
+        for(EdgeBuffer buffer : buffers) {
+            maxNum = Math.max(maxNum, buffer.maxNum);
+        }
+        final int n = maxNum + 1;
+
+        // count degrees (including duplicated edges)
+        final AtomicIntegerArray degrees = new AtomicIntegerArray(n);
+        Parallel.forRange(pool, 0, buffers.length, 1, (from, to) -> {
+            for(int i=from; i<to; i++) {
+                final EdgeBuffer buffer = buffers[i];
+                for(int j=0; j<buffer.size; j++) {
+                    degrees.incrementAndGet(buffer.src[j]);
+                    degrees.incrementAndGet(buffer.trg[j]);
                 }
             }
-            else {
-                results[i] = new int[0];
+        });
+
+        final int[][] results = new int[n][];
+        Parallel.forRange(pool, 0, n, 1 << 14, (from, to) -> {
+            for(int i=from; i<to; i++) {
+                final int degree = degrees.get(i);
+                results[i] = degree == 0 ? EMPTY : new int[degree];
             }
-        }
+        });
+
+        // scatter both directions of each edge
+        Parallel.forRange(pool, 0, buffers.length, 1, (from, to) -> {
+            for(int i=from; i<to; i++) {
+                final EdgeBuffer buffer = buffers[i];
+                for(int j=0; j<buffer.size; j++) {
+                    final int src = buffer.src[j];
+                    final int trg = buffer.trg[j];
+                    results[src][degrees.decrementAndGet(src)] = trg;
+                    results[trg][degrees.decrementAndGet(trg)] = src;
+                }
+                buffers[i] = null;
+            }
+        });
 
-        if(verbose)
-           System.err.println("graph was loaded.: "+ path);
+        // sort and remove duplicated edges
+        Parallel.forRange(pool, 0, n, 1 << 12, (from, to) -> {
+            for(int i=from; i<to; i++) {
+                results[i] = sortUnique(results[i]);
+            }
+        });
 
         return results;
     }
 
     /**
-     * load a large-scale input graph in memory
+     * sort an array and remove duplicates
+     * @param neighbors array to sort (modified)
+     * @return sorted array without duplicates (neighbors itself if it has no duplicates)
+     */
+    static int[] sortUnique(int[] neighbors) {
+        Arrays.sort(neighbors);
+        int size = 0;
+        for(int i=0; i<neighbors.length; i++) {
+            if(i == 0 || neighbors[i] != neighbors[i-1]) {
+                neighbors[size++] = neighbors[i];
+            }
+        }
+        return size == neighbors.length ? neighbors : Arrays.copyOf(neighbors, size);
+    }
+
+    /**
+     * load a large-scale input graph in memory using external sorting
      * @param path  path of the input graph file
      * @param delim delimiter used in the file
      * @return
      * @throws IOException
      */
     public static int[][] loadLarge(String path, String delim) throws IOException {
+        return loadLarge(path, delim, ExternalImport.defaultMemoryBudget(), ExternalImport.defaultTempDir());
+    }
 
-        // Scanning Graph
-        System.err.println("scanning graph...");
-        int maxNum = 0;
-        long lineNum = 0;
-
-        BufferedReader br = new BufferedReader(new FileReader(path));
-        while(true) {
-            final String line = br.readLine();
-            if(line == null) {
-                break;
-            }
-            else if(line.startsWith("#") || line.startsWith("%") || line.startsWith("//")) { //comment
-                System.err.println("The following line was ignored during loading a graph:");
-                System.err.println(line);
-                continue;
-            }
-            else {
-                String[] tokens = line.split(delim);
-                int src = Integer.valueOf(tokens[0]);
-                int trg = Integer.valueOf(tokens[1]);
-                if(src==trg)
-                    continue;
-
-                maxNum = Math.max(src, maxNum);
-                maxNum = Math.max(trg, maxNum);
-                lineNum++;
-            }
-        }
-        br.close();
+    /**
+     * load a large-scale input graph in memory using external sorting
+     * @param path  path of the input graph file
+     * @param delim delimiter used in the file
+     * @param memoryBudget  memory (in bytes) used for buffering edges before they are spilled to disk
+     * @param tempDir   directory for temporary files
+     * @return
+     * @throws IOException
+     */
+    public static int[][] loadLarge(String path, String delim, long memoryBudget, String tempDir) throws IOException {
 
-        if(linePerFile > lineNum) {
-            return load(path, delim);
+        if(CSRGraph.isCSR(path)) {
+            return loadCSR(path, true).toAdjacencyLists();
         }
 
-        System.err.println("splitting graph...");
-
-        int splitNum = (int) (lineNum/linePerFile+1);
+        return new ExternalImport(memoryBudget, tempDir, Parallel.defaultThreads(), true).load(path, delim);
+    }
 
-        DataOutputStream[] outs = new DataOutputStream[splitNum];
-        int[] counts = new int[splitNum];
+    /**
+     * memory-map an input graph in the binary CSR format (see {@link Convert})
+     * @param path  path of the input graph file
+     * @param verbose whether to print logs
+     * @return mapped graph
+     * @throws IOException
+     */
+    public static CSRGraph loadCSR(String path, final boolean verbose) throws IOException {
 
-        for(int i=0; i<splitNum; i++) {
-            outs[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path+"_"+i)));
-        }
+        if(verbose)
+            System.err.println("mapping graph...: "+ path);
 
-        int base = maxNum + 1;
+        final CSRGraph graph = CSRGraph.open(path);
 
-        br = new BufferedReader(new FileReader(path));
-        while(true) {
-            final String line = br.readLine();
-            if(line == null) {
-                break;
-            }
-            else if(line.startsWith("#") || line.startsWith("%") || line.startsWith("//")) { //comment
-                System.err.println("The following line was ignored during loading a graph:");
-                System.err.println(line);
-                continue;
-            }
-            else {
-                String[] tokens = line.split(delim);
-                int src = Integer.valueOf(tokens[0]);
-                int trg = Integer.valueOf(tokens[1]);
-                if(src==trg)
-                    continue;
-                int srcSplit = src % splitNum;
-                int trgSplit = trg % splitNum;
-                outs[srcSplit].writeLong(((long)src) * base + trg);
-                counts[srcSplit]++;
-                outs[trgSplit].writeLong(((long)trg) * base + src);
-                counts[trgSplit]++;
-            }
-        }
-        br.close();
+        if(verbose)
+            System.err.println("graph was mapped.: "+ path + " (" + graph.numNodes() + " vertices, " + graph.numEntries() + " entries)");
 
-        for(int i=0; i<splitNum; i++) {
-            outs[i].close();
-        }
+        return graph;
+    }
 
-        System.err.println("loading graph...");
+    /**
+     * Growable buffer of the edges parsed from a byte range
+     */
+    static final class EdgeBuffer implements EdgeScanner.Visitor {
 
-        int[][] result = new int[maxNum+1][];
+        int[] src = new int[1 << 12];
 
-        for(int i=0; i<splitNum; i++) {
-            DataInputStream ins = new DataInputStream(new BufferedInputStream(new FileInputStream(path+"_"+i)));
-            long[] lines = new long[counts[i]];
-            for(int j=0; j<counts[i]; j++) {
-                lines[j] = ins.readLong();
-            }
-            ins.close();
-            new File(path+"_"+i).delete(); //remove temporary file
-
-            Arrays.sort(lines);
-
-            long previousLine = 0;
-            int previousSrc = 0;
-            final List<Integer> neighbors = new LinkedList<Integer>();
-            for(long line : lines) {
-                if(line==previousLine)
-                    continue;
-                int src = (int) (line/base);
-                int trg = (int) (line - base*src);
-                if(src!= previousSrc) {
-                    result[previousSrc] = new int[neighbors.size()];
-                    int index = 0;
-                    for(int neighbor : neighbors) {
-                        result[previousSrc][index++] = neighbor;
-                    }
-                    neighbors.clear();
-                    previousSrc = src;
-                }
-                neighbors.add(trg);
-                previousLine = line;
-            }
+        int[] trg = new int[1 << 12];
 
-            result[previousSrc] = new int[neighbors.size()];
-            int index = 0;
-            for(int neighbor : neighbors) {
-                result[previousSrc][index++] = neighbor;
-            }
+        int size = 0;
 
-            System.err.println((i+1) + "th split was loaded");
-        }
+        int maxNum = 0;
 
-        for(int i=0; i<=maxNum; i++) {
-            if(result[i]==null) {
-                result[i] = new int[0];
+        @Override
+        public void edge(int src, int trg) {
+            if(src == trg)
+                return;
+            if(size == this.src.length) {
+                this.src = Arrays.copyOf(this.src, size * 2);
+                this.trg = Arrays.copyOf(this.trg, size * 2);
             }
+            this.src[size] = src;
+            this.trg[size] = trg;
+            size++;
+            maxNum = Math.max(maxNum, Math.max(src, trg));
         }
-
-        System.err.println("graph was loaded.");
-
-        return result;
     }
 }
@@ -0,0 +1,249 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+/**
+ * Intersection of sorted sets of distinct integers (e.g., adjacency lists)
+ *
+ * {@link #count} and {@link #intersect} choose a strategy by the ratio of the list sizes: galloping from the shorter
+ * list if the longer one is at least GALLOP_RATIO times longer, block merge if both are long, and two-pointer merge
+ * otherwise. If the longer list is probed repeatedly, {@link #countMarked} looks its members up in a marker array
+ * instead. Run {@link IntersectBenchmark} to compare the strategies on a graph.
+ */
+public class Intersect {
+
+    /**
+     * minimum ratio of the list sizes for galloping
+     */
+    public static final int GALLOP_RATIO = 32;
+
+    /**
+     * minimum length of the shorter list for block merge
+     */
+    public static final int BLOCK_MIN = 16;
+
+    /**
+     * count the common elements of two sorted lists with the strategy chosen by their sizes
+     * @param a sorted list
+     * @param aLength   number of valid entries of a
+     * @param b sorted list
+     * @param bLength   number of valid entries of b
+     * @return number of common elements
+     */
+    public static int count(int[] a, int aLength, int[] b, int bLength) {
+        if(aLength > bLength) {
+            return count(b, bLength, a, aLength);
+        }
+        if(aLength == 0) {
+            return 0;
+        }
+        if(bLength / aLength >= GALLOP_RATIO) {
+            return countGallop(a, aLength, b, bLength);
+        }
+        if(aLength >= BLOCK_MIN) {
+            return countBlockMerge(a, aLength, b, bLength);
+        }
+        return countMerge(a, aLength, b, bLength);
+    }
+
+    /**
+     * write the common elements of two sorted lists with the strategy chosen by their sizes
+     * @param a sorted list
+     * @param aLength   number of valid entries of a
+     * @param b sorted list
+     * @param bLength   number of valid entries of b
+     * @param result    buffer whose length is at least min(aLength, bLength)
+     * @return number of common elements, written to the front of result in increasing order
+     */
+    public static int intersect(int[] a, int aLength, int[] b, int bLength, int[] result) {
+        if(aLength > bLength) {
+            return intersect(b, bLength, a, aLength, result);
+        }
+        int count = 0;
+        if(aLength > 0 && bLength / aLength >= GALLOP_RATIO) {
+            int lo = 0;
+            for(int i=0; i<aLength && lo<bLength; i++) {
+                final int found = gallop(b, lo, bLength, a[i]);
+                if(found >= 0) {
+                    result[count++] = a[i];
+                    lo = found + 1;
+                }
+                else {
+                    lo = -found - 1;
+                }
+            }
+            return count;
+        }
+        int i = 0;
+        int j = 0;
+        while(i < aLength && j < bLength) {
+            if(a[i] == b[j]) {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+            else if(a[i] > b[j]) {
+                j++;
+            }
+            else {
+                i++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * two-pointer merge, O(aLength + bLength)
+     */
+    public static int countMerge(int[] a, int aLength, int[] b, int bLength) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while(i < aLength && j < bLength) {
+            if(a[i] == b[j]) {
+                count++;
+                i++;
+                j++;
+            }
+            else if(a[i] > b[j]) {
+                j++;
+            }
+            else {
+                i++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * galloping search for each element of a in b, O(aLength log(bLength / aLength))
+     */
+    public static int countGallop(int[] a, int aLength, int[] b, int bLength) {
+        int count = 0;
+        int lo = 0;
+        for(int i=0; i<aLength && lo<bLength; i++) {
+            final int found = gallop(b, lo, bLength, a[i]);
+            if(found >= 0) {
+                count++;
+                lo = found + 1;
+            }
+            else {
+                lo = -found - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * merge of blocks of four elements with all sixteen pairs compared without branches (Schlegel et al.);
+     * the JDK 8 target has no vector API, so the comparisons are left to the JIT
+     */
+    public static int countBlockMerge(int[] a, int aLength, int[] b, int bLength) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while(i + 4 <= aLength && j + 4 <= bLength) {
+            final int a0 = a[i];
+            final int a1 = a[i+1];
+            final int a2 = a[i+2];
+            final int a3 = a[i+3];
+            final int b0 = b[j];
+            final int b1 = b[j+1];
+            final int b2 = b[j+2];
+            final int b3 = b[j+3];
+            count += eq(a0, b0) + eq(a0, b1) + eq(a0, b2) + eq(a0, b3)
+                    + eq(a1, b0) + eq(a1, b1) + eq(a1, b2) + eq(a1, b3)
+                    + eq(a2, b0) + eq(a2, b1) + eq(a2, b2) + eq(a2, b3)
+                    + eq(a3, b0) + eq(a3, b1) + eq(a3, b2) + eq(a3, b3);
+            if(a3 <= b3) {
+                i += 4;
+            }
+            if(b3 <= a3) {
+                j += 4;
+            }
+        }
+        while(i < aLength && j < bLength) {
+            if(a[i] == b[j]) {
+                count++;
+                i++;
+                j++;
+            }
+            else if(a[i] > b[j]) {
+                j++;
+            }
+            else {
+                i++;
+            }
+        }
+        return count;
+    }
+
+    private static int eq(int x, int y) {
+        return x == y ? 1 : 0; // compiled to a conditional set
+    }
+
+    /**
+     * count the elements of a whose entry in a marker array equals stamp; the marker array acts as a perfect hash
+     * of the longer list, so each probe costs O(1) once the list is marked
+     * @param a list of indices into mark
+     * @param aLength   number of valid entries of a
+     * @param mark  marker array
+     * @param stamp value of the marked entries
+     * @return number of marked elements of a
+     */
+    public static int countMarked(int[] a, int aLength, int[] mark, int stamp) {
+        int count = 0;
+        for(int i=0; i<aLength; i++) {
+            if(mark[a[i]] == stamp) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * galloping search in a sorted array starting from a given position; a sequence of searches for increasing keys
+     * from the previous insertion points costs O(k log(length/k)) for k keys
+     * @param array sorted array
+     * @param from  first position to search
+     * @param length    number of valid entries of array
+     * @param key   value to find
+     * @return position of key, or -(insertion point)-1 if it is absent
+     */
+    public static int gallop(int[] array, int from, int length, int key) {
+        int step = 1;
+        int hi = from;
+        while(hi < length && array[hi] < key) {
+            from = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        hi = Math.min(hi, length - 1);
+        while(from <= hi) {
+            final int mid = (from + hi) >>> 1;
+            if(array[mid] < key) {
+                from = mid + 1;
+            }
+            else if(array[mid] > key) {
+                hi = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -(from + 1);
+    }
+}
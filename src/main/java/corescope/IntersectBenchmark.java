@@ -0,0 +1,155 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Benchmark of the strategies of {@link Intersect} on the adjacency lists of the endpoints of sampled edges
+ *
+ * Sampled edges are grouped by the ratio of the degrees of their endpoints. Each strategy is run over every group
+ * after warm-up rounds, and the average time per intersection is reported. The time of the marked strategy includes
+ * marking the longer list, which callers probing one list many times (e.g., {@link EdgeSupport}) pay only once.
+ */
+public class IntersectBenchmark {
+
+    private static final String[] GROUPS = {"ratio<4", "4<=ratio<" + Intersect.GALLOP_RATIO, "ratio>=" + Intersect.GALLOP_RATIO};
+
+    private static final String[] STRATEGIES = {"adaptive", "merge", "gallop", "block", "marked"};
+
+    private static final int WARMUP = 3;
+
+    /**
+     * stamp of the latest marked list
+     */
+    private static int lastStamp = 0;
+
+    public static void main(String[] ar) throws IOException {
+
+        if(ar.length < 2) {
+            printError();
+            System.exit(-1);
+        }
+
+        final String input = ar[0];
+        String delim = "\t";
+        if (ar[1].compareToIgnoreCase("tab") == 0) {
+            delim = "\t";
+        } else if (ar[1].compareToIgnoreCase("space") == 0){
+            delim = " ";
+        } else if(ar[1].compareToIgnoreCase("comma") == 0) {
+            delim = ",";
+        } else {
+            System.err.println("Unknown Delimeter");
+            printError();
+            System.exit(-1);
+        }
+        final int pairs = ar.length >= 3 ? Integer.valueOf(ar[2]) : 100000;
+        final int rounds = ar.length >= 4 ? Integer.valueOf(ar[3]) : 5;
+
+        final int[][] graph = Import.loadLarge(input, delim);
+        run(graph, pairs, rounds);
+    }
+
+    private static void printError() {
+        System.err.println("Usage: run_intersect_benchmark.sh input_path delimiter [num_pairs] [num_rounds]");
+        System.err.println("delimiter should be one of [tab, space, comma]");
+    }
+
+    /**
+     * time the strategies and print the results
+     * @param graph input graph
+     * @param pairs number of sampled edges
+     * @param rounds    number of timed rounds
+     */
+    public static void run(int[][] graph, int pairs, int rounds) {
+
+        // sample edges and group them by degree ratio; a[i] is the shorter list
+        final Random random = new Random(0);
+        final int n = graph.length;
+        final int[][][] shorter = new int[GROUPS.length][pairs][];
+        final int[][][] longer = new int[GROUPS.length][pairs][];
+        final int[] sizes = new int[GROUPS.length];
+        int trials = 0;
+        while(sizes[0] + sizes[1] + sizes[2] < pairs && trials++ < pairs * 100) {
+            final int u = random.nextInt(n);
+            if(graph[u].length == 0) {
+                continue;
+            }
+            final int v = graph[u][random.nextInt(graph[u].length)];
+            final int[] a = graph[u].length <= graph[v].length ? graph[u] : graph[v];
+            final int[] b = a == graph[u] ? graph[v] : graph[u];
+            final int ratio = b.length / a.length;
+            final int group = ratio < 4 ? 0 : ratio < Intersect.GALLOP_RATIO ? 1 : 2;
+            shorter[group][sizes[group]] = a;
+            longer[group][sizes[group]] = b;
+            sizes[group]++;
+        }
+
+        final int[] mark = new int[n];
+        System.out.println("group\tpairs\tstrategy\tns_per_pair\tcommon");
+        for(int group=0; group<GROUPS.length; group++) {
+            if(sizes[group] == 0) {
+                continue;
+            }
+            for(int strategy=0; strategy<STRATEGIES.length; strategy++) {
+                long common = 0;
+                long elapsed = 0;
+                for(int round=0; round<WARMUP+rounds; round++) {
+                    final long start = System.nanoTime();
+                    common = run(strategy, shorter[group], longer[group], sizes[group], mark);
+                    if(round >= WARMUP) {
+                        elapsed += System.nanoTime() - start;
+                    }
+                }
+                System.out.println(GROUPS[group] + "\t" + sizes[group] + "\t" + STRATEGIES[strategy] + "\t"
+                        + String.format("%.1f", elapsed / (double) rounds / sizes[group]) + "\t" + common);
+            }
+        }
+    }
+
+    private static long run(int strategy, int[][] shorter, int[][] longer, int size, int[] mark) {
+        long common = 0;
+        for(int i=0; i<size; i++) {
+            final int[] a = shorter[i];
+            final int[] b = longer[i];
+            switch (strategy) {
+                case 0:
+                    common += Intersect.count(a, a.length, b, b.length);
+                    break;
+                case 1:
+                    common += Intersect.countMerge(a, a.length, b, b.length);
+                    break;
+                case 2:
+                    common += Intersect.countGallop(a, a.length, b, b.length);
+                    break;
+                case 3:
+                    common += Intersect.countBlockMerge(a, a.length, b, b.length);
+                    break;
+                default: {
+                    final int stamp = ++lastStamp;
+                    for(int x : b) {
+                        mark[x] = stamp;
+                    }
+                    common += Intersect.countMarked(a, a.length, mark, stamp);
+                    break;
+                }
+            }
+        }
+        return common;
+    }
+}
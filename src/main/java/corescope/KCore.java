@@ -15,16 +15,21 @@
 
 package corescope;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
-
 /**
  * Compute k-cores
  * @author Kijung Shin
  */
 public class KCore {
 
+    /**
+     * get the degeneracy-core without computing the corenesses of all the vertices (see {@link TopCore})
+     * @param graph input graph
+     * @return  degeneracy-core, indexToOriginal (index in the degeneracy-core -> index in the entire graph)
+     */
+    public static Pair<int[][], int[]> getDegeneracyCore(final int[][] graph) {
+        return TopCore.getDegeneracyCore(graph, false);
+    }
+
     /**
      * get the degeneracy-core
      * @param graph input graph
@@ -49,45 +54,34 @@ public class KCore {
      * @return k-core, indexToOriginal (index in the k-core -> index in the entire graph)
      */
     public static Pair<int[][], int[]> getKCore(final int[][] graph, final int[] corenesses, final int k) {
+        final SubgraphView view = getKCoreView(graph, corenesses, k);
+        return new Pair(view.materialize(), view.getIndexToOriginal());
+    }
 
-        final LinkedList<Integer> nodes = new LinkedList();
-        for(int src = 0; src < graph.length; src++){
-            if(corenesses[src] >= k){
-                nodes.add(src);
-            }
-        }
-        Collections.sort(nodes);
-
-        final int newN = nodes.size();
-        final int[] indexToOriginal = new int[newN];
-        final HashMap<Integer, Integer> indexToNewIndex = new HashMap();
-        while(nodes.size() > 0) {
-            final int node = nodes.pop();
-            final int newINdex = indexToNewIndex.size();
-            indexToNewIndex.put(node, newINdex);
-            indexToOriginal[newINdex] = node;
-        }
+    /**
+     * get a view of the k-core without copying it
+     * @param graph input graph
+     * @param corenesses    corenesses of verticies
+     * @param k
+     * @return view of the k-core
+     */
+    public static SubgraphView getKCoreView(final int[][] graph, final int[] corenesses, final int k) {
+        return SubgraphView.of(graph, corenesses, k);
+    }
 
-        final int[][] newGraph = new int[newN][];
-        for(int src = 0; src < graph.length; src++){
-            if(corenesses[src] >= k){
-                int count = 0;
-                for(int trg: graph[src]){
-                    if(corenesses[trg] >= k) {
-                        count++;
-                    }
-                }
-                newGraph[indexToNewIndex.get(src)] = new int[count];
-                count = 0;
-                for(final int trg: graph[src]){
-                    if(corenesses[trg] >= k) {
-                        newGraph[indexToNewIndex.get(src)][count++] = indexToNewIndex.get(trg);
-                    }
-                }
+    /**
+     * get a view of the degeneracy-core without computing the corenesses of all the vertices (see {@link TopCore})
+     * @param graph input graph
+     * @return view of the degeneracy-core
+     */
+    public static SubgraphView getDegeneracyCoreView(final int[][] graph) {
+        final int[] corenesses = TopCore.runDegeneracy(graph, false);
+        int maxK = 0;
+        for(int coreNum : corenesses) {
+            if(maxK < coreNum) {
+                maxK = coreNum;
             }
         }
-
-        return new Pair(newGraph, indexToOriginal);
-
+        return SubgraphView.of(graph, corenesses, maxK);
     }
 }
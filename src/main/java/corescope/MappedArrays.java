@@ -0,0 +1,114 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped primitive arrays larger than a single mapping (2GB)
+ */
+final class MappedArrays {
+
+    /**
+     * log2 of the number of elements in a chunk
+     */
+    static final int CHUNK_BITS = 27;
+
+    static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private MappedArrays() {
+    }
+
+    /**
+     * map an int array stored in a file
+     * @param channel   file channel
+     * @param mode  mapping mode
+     * @param position  position (in bytes) where the array starts
+     * @param length    number of elements
+     * @return chunks of the array
+     * @throws IOException
+     */
+    static IntBuffer[] mapInts(final FileChannel channel, final FileChannel.MapMode mode, final long position, final long length) throws IOException {
+        final int chunkNum = (int) ((length + CHUNK_MASK) >>> CHUNK_BITS);
+        final IntBuffer[] chunks = new IntBuffer[chunkNum];
+        for(int i=0; i<chunkNum; i++) {
+            final long start = ((long) i) << CHUNK_BITS;
+            final long size = Math.min(length - start, 1L << CHUNK_BITS);
+            chunks[i] = channel.map(mode, position + start * 4, size * 4).asIntBuffer();
+        }
+        return chunks;
+    }
+
+    /**
+     * map a long array stored in a file
+     * @param channel   file channel
+     * @param mode  mapping mode
+     * @param position  position (in bytes) where the array starts
+     * @param length    number of elements
+     * @return chunks of the array
+     * @throws IOException
+     */
+    static LongBuffer[] mapLongs(final FileChannel channel, final FileChannel.MapMode mode, final long position, final long length) throws IOException {
+        final int chunkNum = (int) ((length + CHUNK_MASK) >>> CHUNK_BITS);
+        final LongBuffer[] chunks = new LongBuffer[chunkNum];
+        for(int i=0; i<chunkNum; i++) {
+            final long start = ((long) i) << CHUNK_BITS;
+            final long size = Math.min(length - start, 1L << CHUNK_BITS);
+            chunks[i] = channel.map(mode, position + start * 8, size * 8).asLongBuffer();
+        }
+        return chunks;
+    }
+
+    static int get(final IntBuffer[] chunks, final long index) {
+        return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+    }
+
+    static long get(final LongBuffer[] chunks, final long index) {
+        return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+    }
+
+    static void put(final IntBuffer[] chunks, final long index, final int value) {
+        chunks[(int) (index >>> CHUNK_BITS)].put((int) (index & CHUNK_MASK), value);
+    }
+
+    static void put(final LongBuffer[] chunks, final long index, final long value) {
+        chunks[(int) (index >>> CHUNK_BITS)].put((int) (index & CHUNK_MASK), value);
+    }
+
+    /**
+     * copy a range of a mapped int array to a heap array
+     * @param chunks    chunks of the array
+     * @param from  index of the first element to copy
+     * @param dst   destination
+     * @param offset    offset in the destination
+     * @param length    number of elements to copy
+     */
+    static void copy(final IntBuffer[] chunks, long from, final int[] dst, int offset, int length) {
+        while(length > 0) {
+            final IntBuffer chunk = chunks[(int) (from >>> CHUNK_BITS)].duplicate();
+            final int start = (int) (from & CHUNK_MASK);
+            final int len = Math.min(length, chunk.limit() - start);
+            chunk.position(start);
+            chunk.get(dst, offset, len);
+            from += len;
+            offset += len;
+            length -= len;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Helpers for running work on a fork-join pool
+ */
+public final class Parallel {
+
+    private Parallel() {
+    }
+
+    /**
+     * Work on a range of indices
+     */
+    public interface RangeTask {
+        void run(int from, int to);
+    }
+
+    /**
+     * @return number of available processors
+     */
+    public static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * run the given tasks on the pool and wait for all of them
+     * @param pool  pool to run the tasks on
+     * @param tasks tasks
+     * @throws IOException if any task threw one
+     */
+    public static <T> void invokeAll(ForkJoinPool pool, List<? extends Callable<T>> tasks) throws IOException {
+        for(Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if(cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if(cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                } else if(cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if(cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * run a task over [from, to) split into work-stealing pieces of at most grain indices
+     * @param pool  pool to run the task on
+     * @param from  first index
+     * @param to    index after the last one
+     * @param grain maximum number of indices handled by a single piece
+     * @param task  task
+     */
+    public static void forRange(ForkJoinPool pool, int from, int to, int grain, RangeTask task) {
+        if(to - from <= grain) {
+            task.run(from, to);
+            return;
+        }
+        pool.invoke(new RangeAction(from, to, Math.max(1, grain), task));
+    }
+
+    private static final class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final RangeTask task;
+
+        RangeAction(int from, int to, int grain, RangeTask task) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= grain) {
+                task.run(from, to);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, mid, grain, task), new RangeAction(mid, to, grain, task));
+        }
+    }
+
+    /**
+     * Growable int array owned by a single task
+     */
+    static final class IntBuffer {
+
+        int[] array = new int[16];
+
+        int size = 0;
+
+        void add(int value) {
+            if(size == array.length) {
+                array = Arrays.copyOf(array, size * 2);
+            }
+            array[size++] = value;
+        }
+    }
+
+    /**
+     * Buffers filled by concurrent tasks
+     */
+    static final class Buffers {
+
+        private final ConcurrentLinkedQueue<IntBuffer> buffers = new ConcurrentLinkedQueue<IntBuffer>();
+
+        void add(IntBuffer buffer) {
+            if(buffer.size > 0) {
+                buffers.add(buffer);
+            }
+        }
+
+        int[] toArray() {
+            int size = 0;
+            for(IntBuffer buffer : buffers) {
+                size += buffer.size;
+            }
+            final int[] result = new int[size];
+            int pos = 0;
+            for(IntBuffer buffer : buffers) {
+                System.arraycopy(buffer.array, 0, result, pos, buffer.size);
+                pos += buffer.size;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Parallel Core Decomposition
+ *
+ * Level-synchronous peeling in the style of PKC: for each k, the vertices whose degree is at most k are peeled in rounds.
+ * Degrees are decremented atomically, and a neighbor whose degree drops to exactly k is added to the next round
+ * by the thread that made the drop, using a thread-local frontier buffer.
+ */
+public class ParallelCoreDecomp {
+
+    /**
+     * number of vertices handled by a single task
+     */
+    private static final int GRAIN = 1 << 10;
+
+    /**
+     * compute the corenesses of vertices in the given graph
+     * @param graph input graph
+     * @param threads   number of threads
+     * @param verbose whether to print progress
+     * @return corenesses of vertices (vertex index -> coreness), identical to {@link CoreDecomp#run(int[][], boolean)}
+     */
+    public static int[] run(final int[][] graph, final int threads, final boolean verbose) {
+
+        if(verbose)
+            System.err.println("computing core decomposition with " + threads + " threads...");
+
+        final long startTime = System.currentTimeMillis();
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            final int n = graph.length;
+            final int[] corenesses = new int[n];
+            final boolean[] peeled = new boolean[n];
+            final AtomicIntegerArray degrees = new AtomicIntegerArray(n);
+            Parallel.forRange(pool, 0, n, GRAIN * 16, (from, to) -> {
+                for(int i=from; i<to; i++) {
+                    degrees.set(i, graph[i].length);
+                }
+            });
+
+            int[] remaining = new int[n];
+            for(int i=0; i<n; i++) {
+                remaining[i] = i;
+            }
+            int remainingNum = n;
+            int k = 0;
+            int peeledNum = 0;
+
+            while(remainingNum > 0) {
+
+                // collect the vertices with degree at most k and compact the remaining ones
+                final int[] candidates = remaining;
+                final int level = k;
+                final Parallel.Buffers frontierBuffers = new Parallel.Buffers();
+                final Parallel.Buffers remainingBuffers = new Parallel.Buffers();
+                final int[] minDegree = {Integer.MAX_VALUE};
+                Parallel.forRange(pool, 0, remainingNum, GRAIN * 16, (from, to) -> {
+                    final Parallel.IntBuffer frontier = new Parallel.IntBuffer();
+                    final Parallel.IntBuffer rest = new Parallel.IntBuffer();
+                    int min = Integer.MAX_VALUE;
+                    for(int i=from; i<to; i++) {
+                        final int v = candidates[i];
+                        if(peeled[v]) {
+                            continue;
+                        }
+                        final int degree = degrees.get(v);
+                        if(degree <= level) {
+                            frontier.add(v);
+                        }
+                        else {
+                            rest.add(v);
+                            min = Math.min(min, degree);
+                        }
+                    }
+                    frontierBuffers.add(frontier);
+                    remainingBuffers.add(rest);
+                    synchronized (minDegree) {
+                        minDegree[0] = Math.min(minDegree[0], min);
+                    }
+                });
+                int[] frontier = frontierBuffers.toArray();
+                remaining = remainingBuffers.toArray();
+                remainingNum = remaining.length;
+
+                if(frontier.length == 0) {
+                    k = minDegree[0]; // no vertex has degree k
+                    continue;
+                }
+
+                // peel rounds until no vertex has degree at most k
+                while(frontier.length > 0) {
+                    for(int v : frontier) {
+                        peeled[v] = true;
+                        corenesses[v] = level;
+                    }
+                    peeledNum += frontier.length;
+                    final int[] current = frontier;
+                    final Parallel.Buffers nextBuffers = new Parallel.Buffers();
+                    Parallel.forRange(pool, 0, current.length, GRAIN, (from, to) -> {
+                        final Parallel.IntBuffer next = new Parallel.IntBuffer();
+                        for(int i=from; i<to; i++) {
+                            for(int u : graph[current[i]]) {
+                                if(degrees.get(u) > level && degrees.decrementAndGet(u) == level) {
+                                    next.add(u);
+                                }
+                            }
+                        }
+                        nextBuffers.add(next);
+                    });
+                    frontier = nextBuffers.toArray();
+                }
+
+                if(verbose)
+                    System.err.println("Progress:" + peeledNum + "/" + n + " (k=" + k + ")");
+
+                k++;
+            }
+
+            if(verbose)
+                System.err.println("Core decomposition is computed... (" + (System.currentTimeMillis() - startTime) + "ms)");
+
+            return corenesses;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Parallel Truss Decomposition
+ *
+ * Level-synchronous peeling in the style of PKT (Kabir and Madduri): for each support level, the edges whose support
+ * is at most the level are peeled in rounds. A triangle of a peeled edge decrements the other two edges unless they
+ * were peeled in an earlier round. If another edge of the triangle is peeled in the same round, only the edge with
+ * the smaller ID decrements the third edge, and if all three are peeled together nothing is decremented. Supports are
+ * decremented atomically and restored if they would fall below the level.
+ */
+public class ParallelTrussDecomp {
+
+    /**
+     * number of edges handled by a single task
+     */
+    private static final int GRAIN = 1 << 9;
+
+    /**
+     * compute the trussness of edges
+     * @param index edge index of the input graph
+     * @param threads   number of threads
+     * @param verbose whether to print progress
+     * @return trussness of edges (edge ID -> trussness), identical to {@link TrussDecomp#runEdges(EdgeIndex, boolean)}
+     */
+    public static int[] runEdges(final EdgeIndex index, final int threads, final boolean verbose) {
+
+        if(verbose)
+            System.err.println("computing truss decomposition with " + threads + " threads...");
+
+        final long startTime = System.currentTimeMillis();
+        final int[][] graph = index.getGraph();
+        final int m = index.numEdges();
+        final int[] trussness = new int[m];
+        final boolean[] processed = new boolean[m]; // peeled in an earlier round
+        final boolean[] current = new boolean[m]; // peeled in the current round
+        final AtomicIntegerArray sups = new AtomicIntegerArray(EdgeSupport.run(index, threads));
+
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            int[] remaining = new int[m];
+            for(int e=0; e<m; e++) {
+                remaining[e] = e;
+            }
+            int level = 0;
+            int peeledNum = 0;
+
+            while(remaining.length > 0) {
+
+                // collect the edges with support at most level and compact the remaining ones
+                final int[] candidates = remaining;
+                final int scanLevel = level;
+                final Parallel.Buffers frontierBuffers = new Parallel.Buffers();
+                final Parallel.Buffers remainingBuffers = new Parallel.Buffers();
+                final int[] minSup = {Integer.MAX_VALUE};
+                Parallel.forRange(pool, 0, candidates.length, GRAIN * 16, (from, to) -> {
+                    final Parallel.IntBuffer frontier = new Parallel.IntBuffer();
+                    final Parallel.IntBuffer rest = new Parallel.IntBuffer();
+                    int min = Integer.MAX_VALUE;
+                    for(int i=from; i<to; i++) {
+                        final int e = candidates[i];
+                        if(processed[e]) {
+                            continue;
+                        }
+                        final int sup = sups.get(e);
+                        if(sup <= scanLevel) {
+                            frontier.add(e);
+                        }
+                        else {
+                            rest.add(e);
+                            min = Math.min(min, sup);
+                        }
+                    }
+                    frontierBuffers.add(frontier);
+                    remainingBuffers.add(rest);
+                    synchronized (minSup) {
+                        minSup[0] = Math.min(minSup[0], min);
+                    }
+                });
+                int[] frontier = frontierBuffers.toArray();
+                remaining = remainingBuffers.toArray();
+
+                if(frontier.length == 0) {
+                    level = minSup[0]; // no edge has support level
+                    continue;
+                }
+
+                // peel rounds until no edge has support at most level
+                while(frontier.length > 0) {
+                    for(int e : frontier) {
+                        current[e] = true;
+                    }
+                    final int[] peeling = frontier;
+                    final Parallel.Buffers nextBuffers = new Parallel.Buffers();
+                    Parallel.forRange(pool, 0, peeling.length, GRAIN, (from, to) -> {
+                        final Parallel.IntBuffer next = new Parallel.IntBuffer();
+                        for(int i=from; i<to; i++) {
+                            peel(index, graph, peeling[i], scanLevel, sups, processed, current, next);
+                        }
+                        nextBuffers.add(next);
+                    });
+                    for(int e : peeling) {
+                        current[e] = false;
+                        processed[e] = true;
+                        trussness[e] = scanLevel + 2;
+                    }
+                    peeledNum += peeling.length;
+                    frontier = nextBuffers.toArray();
+                }
+
+                if(verbose)
+                    System.err.println("Progress:" + peeledNum + "/" + m + " (support=" + level + ")");
+
+                level++;
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        if(verbose)
+            System.err.println("Truss decomposition is computed... (" + (System.currentTimeMillis() - startTime) + "ms)");
+
+        return trussness;
+    }
+
+    /**
+     * update the supports of the edges sharing a triangle with a peeled edge
+     */
+    private static void peel(EdgeIndex index, int[][] graph, int e, int level, AtomicIntegerArray sups,
+                             boolean[] processed, boolean[] current, Parallel.IntBuffer next) {
+        int a = index.source(e);
+        int b = index.target(e);
+        if(graph[a].length > graph[b].length) {
+            final int temp = a;
+            a = b;
+            b = temp;
+        }
+        final int[] aNeighbors = graph[a];
+        final int[] aEdges = index.edgeIds(a);
+        final int[] bNeighbors = graph[b];
+        final int[] bEdges = index.edgeIds(b);
+        int lo = sups.get(e) == 0 ? bNeighbors.length : 0; // an edge with zero support has no remaining triangle
+        for(int j=0; j<aNeighbors.length && lo<bNeighbors.length; j++) {
+            final int e1 = aEdges[j];
+            if(processed[e1]) {
+                continue;
+            }
+            final int found = EdgeIndex.gallop(bNeighbors, lo, aNeighbors[j]);
+            if(found < 0) {
+                lo = -found - 1;
+                continue;
+            }
+            lo = found + 1;
+            final int e2 = bEdges[found];
+            if(processed[e2]) {
+                continue;
+            }
+            if(current[e1]) {
+                if(!current[e2] && e < e1) {
+                    decrease(e2, level, sups, next);
+                }
+            }
+            else if(current[e2]) {
+                if(e < e2) {
+                    decrease(e1, level, sups, next);
+                }
+            }
+            else {
+                decrease(e1, level, sups, next);
+                decrease(e2, level, sups, next);
+            }
+        }
+    }
+
+    /**
+     * decrement the support of an edge unless it is already at most level
+     */
+    private static void decrease(int e, int level, AtomicIntegerArray sups, Parallel.IntBuffer next) {
+        if(sups.get(e) <= level) {
+            return;
+        }
+        final int sup = sups.decrementAndGet(e);
+        if(sup == level) {
+            next.add(e);
+        }
+        else if(sup < level) {
+            sups.incrementAndGet(e); // another thread lowered it to level first
+        }
+    }
+}
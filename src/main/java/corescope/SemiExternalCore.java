@@ -0,0 +1,306 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Semi-External Core Decomposition
+ *
+ * Only per-vertex state (offsets, coreness estimates and active flags) is kept in memory. Adjacency lists are streamed
+ * from a file in the binary CSR format in sequential passes (SemiCore+ by Wen et al.): each pass replaces the estimate
+ * of every active vertex by the h-index of its neighbors' estimates, reading only the adjacency lists of active
+ * vertices, until no estimate changes.
+ */
+public class SemiExternalCore {
+
+    /**
+     * size (in bytes) of the read buffer; smaller buffers skip inactive adjacency lists at a finer granularity
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public static void main(String[] ar) throws IOException {
+
+        if(ar.length < 2) {
+            printError();
+            System.exit(-1);
+        }
+
+        String input = ar[0];
+        String output = ar[1];
+        String delim = "\t";
+
+        if(ar.length >= 3) {
+            if (ar[2].compareToIgnoreCase("tab") == 0) {
+                delim = "\t";
+            } else if (ar[2].compareToIgnoreCase("space") == 0){
+                delim = " ";
+            } else if(ar[2].compareToIgnoreCase("comma") == 0) {
+                delim = ",";
+            } else {
+                System.err.println("Unknown Delimeter");
+                printError();
+                System.exit(-1);
+            }
+        }
+
+        long memoryBudget = ExternalImport.defaultMemoryBudget();
+        if(ar.length >= 4) {
+            memoryBudget = Long.valueOf(ar[3]) << 20;
+        }
+        String tempDir = ar.length >= 5 ? ar[4] : ExternalImport.defaultTempDir();
+
+        System.err.println("Input Path: " + input);
+        System.err.println("Ouput Path: " + output);
+
+        File converted = null;
+        String csrPath = input;
+        if(!CSRGraph.isCSR(input)) {
+            converted = File.createTempFile("corescope-csr", ".bin", new File(tempDir));
+            converted.deleteOnExit();
+            csrPath = converted.getPath();
+            System.err.println("Converting the edge list to the CSR format... " + csrPath);
+            new ExternalImport(memoryBudget, tempDir, Parallel.defaultThreads(), true).toCSR(input, delim, csrPath);
+        }
+
+        try {
+            export(run(csrPath, true), output, "\t");
+        } finally {
+            if(converted != null) {
+                converted.delete();
+            }
+        }
+    }
+
+    public static void printError() {
+        System.err.println("Usage: run_semi_core.sh input_path output_path delimiter [memory_budget_mb] [temp_dir]");
+        System.err.println("input_path is an edge list or a graph converted by run_convert.sh");
+        System.err.println("delimiter should be one of [tab, space, comma]");
+        System.err.println("memory_budget_mb and temp_dir are used for converting an edge list");
+    }
+
+    /**
+     * compute the corenesses of vertices in a graph stored in the binary CSR format
+     * @param path  path of the CSR file
+     * @param verbose whether to print progress
+     * @return corenesses of vertices (vertex index -> coreness), identical to {@link CoreDecomp#run(int[][], boolean)}
+     * @throws IOException
+     */
+    public static int[] run(String path, boolean verbose) throws IOException {
+
+        if(verbose)
+            System.err.println("computing semi-external core decomposition...");
+
+        final long startTime = System.currentTimeMillis();
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            final BlockReader reader = new BlockReader(channel);
+
+            final ByteBuffer header = ByteBuffer.allocate(CSRGraph.HEADER_SIZE);
+            reader.read(0, header);
+            header.flip();
+            if(header.remaining() < CSRGraph.HEADER_SIZE || header.getInt() != CSRGraph.MAGIC || header.getInt() != CSRGraph.VERSION) {
+                throw new IOException("not a CSR graph file: " + path);
+            }
+            final long nLong = header.getLong();
+            final long m = header.getLong();
+            if(nLong < 0 || nLong > Integer.MAX_VALUE || channel.size() < CSRGraph.neighborsPosition(nLong) + m * 4) {
+                throw new IOException("corrupted CSR graph file: " + path);
+            }
+            final int n = (int) nLong;
+            final long neighborsPosition = CSRGraph.neighborsPosition(n);
+
+            // per-vertex state
+            final long[] offsets = new long[n + 1];
+            final int[] corenesses = new int[n]; // upper bounds until convergence
+            final boolean[] active = new boolean[n];
+            int maxDegree = 0;
+            for(int v=0; v<=n; v++) {
+                offsets[v] = reader.readLong(CSRGraph.HEADER_SIZE + (long) v * 8);
+            }
+            for(int v=0; v<n; v++) {
+                corenesses[v] = (int) (offsets[v + 1] - offsets[v]);
+                active[v] = true;
+                maxDegree = Math.max(maxDegree, corenesses[v]);
+            }
+
+            if(verbose)
+                System.err.println("Pass 0: offsets loaded (" + reader.bytesRead + " bytes read)");
+
+            final int[] neighbors = new int[maxDegree];
+            final int[] count = new int[maxDegree + 1];
+            int pass = 0;
+            boolean changed = true;
+            while(changed) {
+                changed = false;
+                pass++;
+                reader.bytesRead = 0;
+                int updated = 0;
+                for(int v=0; v<n; v++) {
+                    if(!active[v]) {
+                        continue;
+                    }
+                    active[v] = false;
+                    final int degree = (int) (offsets[v + 1] - offsets[v]);
+                    reader.readInts(neighborsPosition + offsets[v] * 4, neighbors, degree);
+                    final int estimate = hIndex(neighbors, degree, corenesses, corenesses[v], count);
+                    if(estimate < corenesses[v]) {
+                        corenesses[v] = estimate;
+                        changed = true;
+                        updated++;
+                        for(int i=0; i<degree; i++) {
+                            final int u = neighbors[i];
+                            if(corenesses[u] > estimate) {
+                                active[u] = true;
+                            }
+                        }
+                    }
+                }
+
+                if(verbose)
+                    System.err.println("Pass " + pass + ": " + updated + " corenesses updated (" + reader.bytesRead + " bytes read, " + (System.currentTimeMillis() - startTime) + "ms)");
+            }
+
+            if(verbose)
+                System.err.println("Core decomposition is computed after " + pass + " passes... (" + (System.currentTimeMillis() - startTime) + "ms)");
+
+            return corenesses;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * @return largest h <= bound such that at least h of the given neighbors have estimates at least h
+     */
+    private static int hIndex(int[] neighbors, int degree, int[] estimates, int bound, int[] count) {
+        for(int h=0; h<=bound; h++) {
+            count[h] = 0;
+        }
+        for(int i=0; i<degree; i++) {
+            count[Math.min(estimates[neighbors[i]], bound)]++;
+        }
+        int atLeast = 0;
+        for(int h=bound; h>0; h--) {
+            atLeast += count[h];
+            if(atLeast >= h) {
+                return h;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Write the corenesses of verticies to a file
+     * @param corenesses    coreness of vertices
+     * @param path  path of the output file
+     * @param delim delimeter used in the output file
+     * @throws IOException
+     */
+    private static void export(int[] corenesses, String path, String delim) throws IOException {
+
+        System.err.println("Exporting result... "+ path);
+        BufferedWriter bw = new BufferedWriter(new FileWriter(path));
+        for(int i=0; i<corenesses.length; i++) {
+            bw.write(i + delim + corenesses[i]);
+            bw.newLine();
+        }
+        bw.close();
+        System.err.println("Result was exported.: "+ path);
+
+    }
+
+    /**
+     * Buffered reader for reads at non-decreasing positions; ranges before the buffered block are skipped
+     * without being read
+     */
+    private static final class BlockReader {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        /**
+         * file position of the first byte in the buffer
+         */
+        private long bufferStart = 0;
+
+        long bytesRead = 0;
+
+        BlockReader(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        void read(long position, ByteBuffer target) throws IOException {
+            while(target.hasRemaining()) {
+                final int read = channel.read(target, position);
+                if(read < 0) {
+                    break;
+                }
+                position += read;
+                bytesRead += read;
+            }
+        }
+
+        long readLong(long position) throws IOException {
+            ensure(position, 8);
+            return buffer.getLong((int) (position - bufferStart));
+        }
+
+        void readInts(long position, int[] target, int length) throws IOException {
+            int done = 0;
+            while(done < length) {
+                ensure(position, 4);
+                final int available = (int) ((bufferStart + buffer.limit() - position) / 4);
+                final int num = Math.min(available, length - done);
+                int offset = (int) (position - bufferStart);
+                for(int i=0; i<num; i++) {
+                    target[done + i] = buffer.getInt(offset);
+                    offset += 4;
+                }
+                done += num;
+                position += num * 4L;
+            }
+        }
+
+        /**
+         * make the buffer contain [position, position + bytes)
+         */
+        private void ensure(long position, int bytes) throws IOException {
+            if(position >= bufferStart && position + bytes <= bufferStart + buffer.limit()) {
+                return;
+            }
+            buffer.clear();
+            bufferStart = position;
+            while(buffer.position() < bytes) {
+                final int read = channel.read(buffer, bufferStart + buffer.position());
+                if(read < 0) {
+                    throw new IOException("unexpected end of file at byte " + (bufferStart + buffer.position()));
+                }
+                bytesRead += read;
+            }
+            buffer.flip();
+        }
+    }
+}
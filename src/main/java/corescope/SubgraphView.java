@@ -0,0 +1,235 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Induced subgraph that filters the adjacency lists of its parent graph on the fly
+ *
+ * Vertices of the view are numbered in the order of their indices in the parent graph, so filtered adjacency lists
+ * stay sorted and the view is interchangeable with the graph returned by {@link #materialize()}.
+ */
+public class SubgraphView {
+
+    /**
+     * number of vertices handled by a single task
+     */
+    private static final int GRAIN = 1 << 12;
+
+    private final int[][] parent;
+
+    /**
+     * index in the parent graph -> index in the view (-1 if excluded)
+     */
+    private final int[] originalToIndex;
+
+    /**
+     * index in the view -> index in the parent graph
+     */
+    private final int[] indexToOriginal;
+
+    /**
+     * index in the view -> degree in the view
+     */
+    private final int[] degrees;
+
+    /**
+     * number of threads computing degrees and materializing the view
+     */
+    private final int threads;
+
+    private SubgraphView(final int[][] parent, final int[] originalToIndex, final int[] indexToOriginal, final int threads) {
+        this.parent = parent;
+        this.originalToIndex = originalToIndex;
+        this.indexToOriginal = indexToOriginal;
+        this.degrees = new int[indexToOriginal.length];
+        this.threads = threads;
+        forRange(indexToOriginal.length, (from, to) -> {
+            for(int i=from; i<to; i++) {
+                int count = 0;
+                for(int u : parent[indexToOriginal[i]]) {
+                    if(originalToIndex[u] >= 0) {
+                        count++;
+                    }
+                }
+                degrees[i] = count;
+            }
+        });
+    }
+
+    /**
+     * view of the k-core
+     * @param graph input graph
+     * @param corenesses    corenesses of verticies
+     * @param k
+     * @return view of the subgraph induced by the vertices with coreness at least k
+     */
+    public static SubgraphView of(final int[][] graph, final int[] corenesses, final int k) {
+        return of(graph, corenesses, k, Parallel.defaultThreads());
+    }
+
+    /**
+     * view of the k-core
+     * @param graph input graph
+     * @param corenesses    corenesses of verticies
+     * @param k
+     * @param threads   number of threads
+     * @return view of the subgraph induced by the vertices with coreness at least k
+     */
+    public static SubgraphView of(final int[][] graph, final int[] corenesses, final int k, final int threads) {
+        final int n = graph.length;
+        final int[] originalToIndex = new int[n];
+        int size = 0;
+        for(int v=0; v<n; v++) {
+            originalToIndex[v] = corenesses[v] >= k ? size++ : -1;
+        }
+        return new SubgraphView(graph, originalToIndex, indexToOriginal(originalToIndex, size), threads);
+    }
+
+    /**
+     * view of an induced subgraph
+     * @param graph input graph
+     * @param included  whether each vertex is included
+     * @return view of the subgraph induced by the included vertices
+     */
+    public static SubgraphView of(final int[][] graph, final boolean[] included) {
+        return of(graph, included, Parallel.defaultThreads());
+    }
+
+    /**
+     * view of an induced subgraph
+     * @param graph input graph
+     * @param included  whether each vertex is included
+     * @param threads   number of threads
+     * @return view of the subgraph induced by the included vertices
+     */
+    public static SubgraphView of(final int[][] graph, final boolean[] included, final int threads) {
+        final int n = graph.length;
+        final int[] originalToIndex = new int[n];
+        int size = 0;
+        for(int v=0; v<n; v++) {
+            originalToIndex[v] = included[v] ? size++ : -1;
+        }
+        return new SubgraphView(graph, originalToIndex, indexToOriginal(originalToIndex, size), threads);
+    }
+
+    private static int[] indexToOriginal(int[] originalToIndex, int size) {
+        final int[] indexToOriginal = new int[size];
+        for(int v=0; v<originalToIndex.length; v++) {
+            if(originalToIndex[v] >= 0) {
+                indexToOriginal[originalToIndex[v]] = v;
+            }
+        }
+        return indexToOriginal;
+    }
+
+    /**
+     * @return number of vertices in the view
+     */
+    public int numNodes() {
+        return indexToOriginal.length;
+    }
+
+    /**
+     * @param i index in the view
+     * @return degree of i in the view
+     */
+    public int degree(int i) {
+        return degrees[i];
+    }
+
+    /**
+     * @param i index in the view
+     * @return index of i in the parent graph
+     */
+    public int toOriginal(int i) {
+        return indexToOriginal[i];
+    }
+
+    /**
+     * @param v index in the parent graph
+     * @return index of v in the view, or -1 if v is excluded
+     */
+    public int toIndex(int v) {
+        return originalToIndex[v];
+    }
+
+    /**
+     * @return indexToOriginal (index in the view -> index in the parent graph); must not be modified
+     */
+    public int[] getIndexToOriginal() {
+        return indexToOriginal;
+    }
+
+    /**
+     * @param i index in the view
+     * @return adjacency list of i in the parent graph, whose entries u with toIndex(u) >= 0 are the neighbors of i
+     */
+    public int[] parentNeighbors(int i) {
+        return parent[indexToOriginal[i]];
+    }
+
+    /**
+     * copy the neighbors of a vertex
+     * @param i index in the view
+     * @param buffer    buffer whose length is at least the degree of i
+     * @return degree of i
+     */
+    public int neighbors(int i, int[] buffer) {
+        int count = 0;
+        for(int u : parent[indexToOriginal[i]]) {
+            final int index = originalToIndex[u];
+            if(index >= 0) {
+                buffer[count++] = index;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param i index in the view
+     * @return sorted neighbors of i in the view
+     */
+    public int[] neighbors(int i) {
+        final int[] result = new int[degrees[i]];
+        neighbors(i, result);
+        return result;
+    }
+
+    /**
+     * copy the view to the adjacency-list representation
+     * @return subgraph (index in the view -> sorted neighbors)
+     */
+    public int[][] materialize() {
+        final int[][] graph = new int[indexToOriginal.length][];
+        forRange(graph.length, (from, to) -> {
+            for(int i=from; i<to; i++) {
+                graph[i] = neighbors(i);
+            }
+        });
+        return graph;
+    }
+
+    private void forRange(int to, Parallel.RangeTask task) {
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Parallel.forRange(pool, 0, to, GRAIN, task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
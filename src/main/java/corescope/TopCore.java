@@ -0,0 +1,130 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope;
+
+/**
+ * Top k-Cores without a Full Core Decomposition
+ *
+ * Upper bounds of corenesses are obtained from a few h-index sweeps (see {@link HIndexCore}). Vertices whose coreness
+ * is at least k are among the vertices whose upper bounds are at least k, and the j-cores of the subgraph induced
+ * by them are the j-cores of the entire graph for every j >= k. Thus only that subgraph is decomposed.
+ */
+public class TopCore {
+
+    /**
+     * number of h-index sweeps used for upper bounds
+     */
+    private static final int SWEEPS = 2;
+
+    /**
+     * compute the corenesses of the vertices in the k-cores with k >= threshold
+     * @param graph input graph
+     * @param threshold minimum k
+     * @param verbose whether to print progress
+     * @return corenesses of vertices (vertex index -> coreness) for the vertices with coreness at least threshold,
+     *         and 0 for the other vertices
+     */
+    public static int[] run(int[][] graph, int threshold, boolean verbose) {
+        final int[] corenesses = decompose(graph, upperBounds(graph, verbose), threshold, verbose);
+        for(int v=0; v<corenesses.length; v++) {
+            if(corenesses[v] < threshold) {
+                corenesses[v] = 0;
+            }
+        }
+        return corenesses;
+    }
+
+    /**
+     * compute the corenesses of the vertices in the degeneracy-core
+     * @param graph input graph
+     * @param verbose whether to print progress
+     * @return corenesses of vertices (vertex index -> coreness) for the vertices in the degeneracy-core,
+     *         and values smaller than the degeneracy for the other vertices
+     */
+    public static int[] runDegeneracy(int[][] graph, boolean verbose) {
+
+        final int[] upperBounds = upperBounds(graph, verbose);
+
+        // the degeneracy is at most the h-index of the upper bounds
+        final int n = graph.length;
+        final int[] count = new int[n + 1];
+        for(int bound : upperBounds) {
+            count[Math.min(bound, n)]++;
+        }
+        int k = 0;
+        int atLeast = 0;
+        for(int h=n; h>0; h--) {
+            atLeast += count[h];
+            if(atLeast >= h + 1) { // a k-core has at least k+1 vertices
+                k = h;
+                break;
+            }
+        }
+
+        while(true) {
+            final int[] corenesses = decompose(graph, upperBounds, k, verbose);
+            int degeneracy = 0;
+            for(int coreness : corenesses) {
+                degeneracy = Math.max(degeneracy, coreness);
+            }
+            if(degeneracy >= k) {
+                if(verbose)
+                    System.err.println("Degeneracy: " + degeneracy);
+                return corenesses;
+            }
+            // the k-core is empty; the degeneracy is in [degeneracy, k)
+            k = Math.max(degeneracy, k / 2);
+        }
+    }
+
+    /**
+     * get the degeneracy-core
+     * @param graph input graph
+     * @param verbose whether to print progress
+     * @return  degeneracy-core, indexToOriginal (index in the degeneracy-core -> index in the entire graph)
+     */
+    public static Pair<int[][], int[]> getDegeneracyCore(int[][] graph, boolean verbose) {
+        return KCore.getDegeneracyCore(graph, runDegeneracy(graph, verbose));
+    }
+
+    /**
+     * @return upper bounds of corenesses (vertex index -> upper bound)
+     */
+    private static int[] upperBounds(int[][] graph, boolean verbose) {
+        if(verbose)
+            System.err.println("computing upper bounds of corenesses...");
+        return HIndexCore.run(graph, Parallel.defaultThreads(), SWEEPS, Long.MAX_VALUE, null, false);
+    }
+
+    /**
+     * decompose the subgraph induced by the vertices whose upper bounds are at least k
+     * @return corenesses of the vertices with coreness at least k, and values smaller than k for the others
+     */
+    private static int[] decompose(int[][] graph, int[] upperBounds, int k, boolean verbose) {
+
+        final SubgraphView candidates = SubgraphView.of(graph, upperBounds, k);
+
+        if(verbose)
+            System.err.println("decomposing " + candidates.numNodes() + "/" + graph.length + " candidate vertices for k=" + k + "...");
+
+        final int[] subCorenesses = CoreDecomp.run(candidates.materialize(), false);
+        final int[] corenesses = new int[graph.length];
+        for(int i=0; i<subCorenesses.length; i++) {
+            corenesses[candidates.toOriginal(i)] = subCorenesses[i];
+        }
+        return corenesses;
+    }
+}
@@ -40,7 +40,7 @@ public class TrussDecomp {
         String output = ar[1];
         String delim = "\t";
 
-        if(ar.length == 3) {
+        if(ar.length >= 3) {
             if (ar[2].compareToIgnoreCase("tab") == 0) {
                 delim = "\t";
             } else if (ar[2].compareToIgnoreCase("space") == 0){
@@ -58,14 +58,74 @@ public class TrussDecomp {
         System.err.println("Ouput Path: " + output);
         System.err.println("Delimeter: " + ar[2]);
 
+        int engine = ENGINE_BUCKET;
+        if(ar.length >= 4) {
+            if(ar[3].compareToIgnoreCase("bucket") == 0) {
+                engine = ENGINE_BUCKET;
+            } else if(ar[3].compareToIgnoreCase("naive") == 0) {
+                engine = ENGINE_NAIVE;
+            } else if(ar[3].compareToIgnoreCase("parallel") == 0) {
+                engine = ENGINE_PARALLEL;
+            } else {
+                System.err.println("Unknown Engine");
+                printError();
+                System.exit(-1);
+            }
+        }
+
+        final int threads = ar.length >= 5 ? Integer.valueOf(ar[4]) : Parallel.defaultThreads();
+        final String edgeOutput = ar.length >= 6 ? ar[5] : null;
+
         final int[][] graph = Import.loadLarge(input, delim);
-        export(TrussDecomp.run(graph, true), output, "\t");
+        if(engine == ENGINE_NAIVE) {
+            if(edgeOutput != null) {
+                System.err.println("The naive engine does not compute the trussness of edges");
+                printError();
+                System.exit(-1);
+            }
+            export(TrussDecomp.run(graph, true, engine), output, "\t");
+        }
+        else {
+            final EdgeIndex index = EdgeIndex.build(graph);
+            final int[] edgeTrussness = engine == ENGINE_PARALLEL ? ParallelTrussDecomp.runEdges(index, threads, true) : runEdges(index, true);
+            export(toVertexTrussness(index, edgeTrussness), output, "\t");
+            if(edgeOutput != null) {
+                System.err.println("Exporting trussness of edges... " + edgeOutput);
+                EdgeTrussFile.write(edgeOutput, index, edgeTrussness);
+                System.err.println("Trussness of edges was exported.: " + edgeOutput);
+            }
+        }
 
     }
 
     public static void printError() {
-        System.err.println("Usage: run_truss_decomp.sh input_path output_path delimiter");
+        System.err.println("Usage: run_truss_decomp.sh input_path output_path delimiter [engine] [num_threads] [edge_output_path]");
         System.err.println("delimiter should be one of [tab, space, comma]");
+        System.err.println("engine should be one of [bucket, naive, parallel] (default: bucket)");
+        System.err.println("num_threads is used by the parallel engine (default: number of processors)");
+        System.err.println("edge_output_path: binary file of (src, trg, trussness) records (see EdgeTrussFile)");
+    }
+
+    /**
+     * Bucket-based peeling over integer edge IDs, O(m^1.5 log n)
+     */
+    public static final int ENGINE_BUCKET = 0;
+
+    /**
+     * Peeling over hash maps that rescans the remaining edges for each t
+     */
+    public static final int ENGINE_NAIVE = 1;
+
+    /**
+     * Level-synchronous parallel peeling on all processors (see {@link ParallelTrussDecomp})
+     */
+    public static final int ENGINE_PARALLEL = 2;
+
+    /**
+     * @return ENGINE_PARALLEL if more than one processor is available, ENGINE_BUCKET otherwise
+     */
+    public static int defaultEngine() {
+        return Parallel.defaultThreads() > 1 ? ENGINE_PARALLEL : ENGINE_BUCKET;
     }
 
     /**
@@ -75,6 +135,169 @@ public class TrussDecomp {
      * @return trussness of vertices (vertex index -> trussness)
      */
     public static int[] run(int[][] graph, final boolean verbose) {
+        return run(graph, verbose, ENGINE_BUCKET);
+    }
+
+    /**
+     * compute the trussness of vertices in the given graph
+     * @param graph input graph
+     * @param verbose whether to print progress
+     * @param engine    one of ENGINE_BUCKET, ENGINE_NAIVE and ENGINE_PARALLEL
+     * @return trussness of vertices (vertex index -> trussness)
+     */
+    public static int[] run(int[][] graph, final boolean verbose, final int engine) {
+        if(engine == ENGINE_BUCKET) {
+            final EdgeIndex index = EdgeIndex.build(graph);
+            return toVertexTrussness(index, runEdges(index, verbose));
+        }
+        else if(engine == ENGINE_NAIVE) {
+            return runNaive(graph, verbose);
+        }
+        else if(engine == ENGINE_PARALLEL) {
+            final EdgeIndex index = EdgeIndex.build(graph);
+            return toVertexTrussness(index, ParallelTrussDecomp.runEdges(index, Parallel.defaultThreads(), verbose));
+        }
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+
+    /**
+     * compute the trussness of edges by bucket-based peeling (Wang and Cheng)
+     * @param index edge index of the input graph
+     * @param verbose whether to print progress
+     * @return trussness of edges (edge ID -> trussness)
+     */
+    public static int[] runEdges(final EdgeIndex index, final boolean verbose) {
+
+        if(verbose)
+            System.err.println("computing truss decomposition...");
+
+        final int[][] graph = index.getGraph();
+        final int m = index.numEdges();
+        final int[] sups = EdgeSupport.run(index, Parallel.defaultThreads()); // support until the edge is peeled, then trussness
+
+        int maxSup = 0;
+        for(int e=0; e<m; e++) {
+            maxSup = Math.max(maxSup, sups[e]);
+        }
+
+        // bin[s]: position of the first edge with support s in sorted, pos: position of each edge in sorted
+        final int[] bin = new int[maxSup + 1];
+        for(int e=0; e<m; e++) {
+            bin[sups[e]]++;
+        }
+        int start = 0;
+        for(int s=0; s<=maxSup; s++) {
+            final int num = bin[s];
+            bin[s] = start;
+            start += num;
+        }
+        final int[] sorted = new int[m];
+        final int[] pos = new int[m];
+        for(int e=0; e<m; e++) {
+            pos[e] = bin[sups[e]]++;
+            sorted[pos[e]] = e;
+        }
+        for(int s=maxSup; s>0; s--) {
+            bin[s] = bin[s-1];
+        }
+        bin[0] = 0;
+
+        final boolean[] removed = new boolean[m];
+        final int step = Math.max(1, m / 10);
+        for(int i=0; i<m; i++) {
+
+            if(verbose && i % step == 0)
+                System.err.println("Progress:" + i +"/" +m);
+
+            final int e = sorted[i];
+            final int sup = sups[e];
+
+            // enumerate the remaining triangles containing e by galloping from the endpoint with fewer neighbors
+            int a = index.source(e);
+            int b = index.target(e);
+            if(graph[a].length > graph[b].length) {
+                final int temp = a;
+                a = b;
+                b = temp;
+            }
+            final int[] aNeighbors = graph[a];
+            final int[] aEdges = index.edgeIds(a);
+            final int[] bNeighbors = graph[b];
+            final int[] bEdges = index.edgeIds(b);
+            int lo = sup == 0 ? bNeighbors.length : 0; // an edge with zero support has no remaining triangle
+            for(int j=0; j<aNeighbors.length && lo<bNeighbors.length; j++) {
+                final int e1 = aEdges[j];
+                if(removed[e1]) {
+                    continue;
+                }
+                final int found = EdgeIndex.gallop(bNeighbors, lo, aNeighbors[j]);
+                if(found < 0) {
+                    lo = -found - 1;
+                    continue;
+                }
+                lo = found + 1;
+                final int e2 = bEdges[found];
+                if(removed[e2]) {
+                    continue;
+                }
+                decrease(e1, sup, sups, bin, sorted, pos);
+                decrease(e2, sup, sups, bin, sorted, pos);
+            }
+
+            removed[e] = true;
+            sups[e] = sup + 2;
+        }
+
+        if(verbose)
+            System.err.println("Truss decomposition is computed...");
+
+        return sups;
+    }
+
+    /**
+     * decrease the support of an edge whose support is larger than the current level, keeping the bins sorted
+     */
+    private static void decrease(int e, int level, int[] sups, int[] bin, int[] sorted, int[] pos) {
+        final int sup = sups[e];
+        if(sup <= level) {
+            return;
+        }
+        final int pe = pos[e];
+        final int pf = bin[sup];
+        final int f = sorted[pf];
+        if(e != f) {
+            pos[e] = pf;
+            sorted[pe] = f;
+            pos[f] = pe;
+            sorted[pf] = e;
+        }
+        bin[sup]++;
+        sups[e] = sup - 1;
+    }
+
+    /**
+     * @param index edge index
+     * @param edgeTrussness trussness of edges
+     * @return trussness of vertices (vertex index -> maximum trussness of its edges, 0 if it has no edge)
+     */
+    public static int[] toVertexTrussness(final EdgeIndex index, final int[] edgeTrussness) {
+        final int[] trussness = new int[index.getGraph().length];
+        for(int e=0; e<edgeTrussness.length; e++) {
+            final int left = index.source(e);
+            final int right = index.target(e);
+            trussness[left] = Math.max(trussness[left], edgeTrussness[e]);
+            trussness[right] = Math.max(trussness[right], edgeTrussness[e]);
+        }
+        return trussness;
+    }
+
+    /**
+     * compute the trussness of vertices by rescanning the remaining edges for each t
+     * @param graph input graph
+     * @param verbose whether to print progress
+     * @return trussness of vertices (vertex index -> trussness)
+     */
+    private static int[] runNaive(int[][] graph, final boolean verbose) {
 
         if(verbose)
             System.err.println("computing truss decomposition...");
@@ -92,24 +315,7 @@ public class TrussDecomp {
             final int srcLen = srcNeigbors.length;
             for(int j=0; j<graph[src].length; j++) {
                 int dst = graph[src][j];
-                int[] trgNeighbors = graph[dst];
-                int trgLen = trgNeighbors.length;
-                int k = 0;
-                int l = 0;
-                int count = 0;
-                while(k < srcLen && l < trgLen) {
-                    if(srcNeigbors[k] == trgNeighbors[l]) {
-                        count++;
-                        k++;
-                        l++;
-                    }
-                    else if(srcNeigbors[k] > trgNeighbors [l]) {
-                        l++;
-                    }
-                    else {
-                        k++;
-                    }
-                }
+                int count = Intersect.count(srcNeigbors, srcLen, graph[dst], graph[dst].length);
                 long edge = Math.min(src, dst) * base + Math.max(src, dst);
                 sups.put(edge, count);
             }
@@ -118,6 +324,12 @@ public class TrussDecomp {
         final HashSet<Long> S = new HashSet<Long>();
         S.addAll(sups.keySet());
 
+        int maxDegree = 0;
+        for(int i=0; i<n; i++) {
+            maxDegree = Math.max(maxDegree, degree[i]);
+        }
+        final int[] buffer = new int[maxDegree]; // common neighbors of the endpoints of an edge
+
         int t = 2;
         final int m = S.size();
         for(;;t++) {
@@ -143,43 +355,26 @@ public class TrussDecomp {
                     final int src = (int)(edge/base);
                     final int trg = (int)(edge - src * base);
 
-                    final int[] srcNeigbors = graph[src];
-                    final int srcLen = srcNeigbors.length;
-                    final int[] trgNeighbors = graph[trg];
-                    final int trgLen = trgNeighbors.length;
-
-                    int k = 0;
-                    int l = 0;
-                    while(k < srcLen && l < trgLen) {
-                        if(srcNeigbors[k] == trgNeighbors[l]) {
-                            int w = srcNeigbors[k];
-
-                            k++;
-                            l++;
-
-                            long edgeSrc = Math.min(src, w) * base + Math.max(src, w);
-                            if(S.contains(edgeSrc)){
-                                long edgeTrg = Math.min(trg, w) * base + Math.max(trg, w);
-                                if (S.contains(edgeTrg)) {
-                                    int currentSup = sups.get(edgeTrg);
-                                    sups.put(edgeTrg, --currentSup);
-                                    if (currentSup == t - 2) {
-                                        SDelNew.add(edgeTrg);
-                                    }
-                                    currentSup = sups.get(edgeSrc);
-                                    sups.put(edgeSrc, --currentSup);
-                                    if (currentSup == t - 2) {
-                                        SDelNew.add(edgeSrc);
-                                    }
+                    final int common = Intersect.intersect(graph[src], graph[src].length, graph[trg], graph[trg].length, buffer);
+                    for(int k=0; k<common; k++) {
+                        int w = buffer[k];
+
+                        long edgeSrc = Math.min(src, w) * base + Math.max(src, w);
+                        if(S.contains(edgeSrc)){
+                            long edgeTrg = Math.min(trg, w) * base + Math.max(trg, w);
+                            if (S.contains(edgeTrg)) {
+                                int currentSup = sups.get(edgeTrg);
+                                sups.put(edgeTrg, --currentSup);
+                                if (currentSup == t - 2) {
+                                    SDelNew.add(edgeTrg);
+                                }
+                                currentSup = sups.get(edgeSrc);
+                                sups.put(edgeSrc, --currentSup);
+                                if (currentSup == t - 2) {
+                                    SDelNew.add(edgeSrc);
                                 }
                             }
                         }
-                        else if(srcNeigbors[k] > trgNeighbors [l]) {
-                            l++;
-                        }
-                        else {
-                            k++;
-                        }
                     }
 
                     S.remove(edge);
@@ -16,6 +16,7 @@
 package corescope.anomaly;
 
 import corescope.CoreDecomp;
+import corescope.IdDictionary;
 import corescope.Import;
 import corescope.Pair;
 import corescope.TrussDecomp;
@@ -30,11 +31,11 @@ public class CombineCoreA {
 
     /**
      * Main function
-     * @param args  input_path, output_path, weight
+     * @param args  input_path, output_path, weight, [id_type]
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
-        if(args.length != 3) {
+        if(args.length != 3 && args.length != 4) {
             printError();
             System.exit(-1);
         }
@@ -42,14 +43,17 @@ public class CombineCoreA {
         final String input = args[0];
         final String output = args[1];
         final int weight = Integer.valueOf(args[2]);
+        final IdDictionary.Type idType = args.length == 4 ? IdDictionary.Type.parse(args[3]) : IdDictionary.Type.INT;
 
-        run(Import.load(input, "\t"), output, weight, false);
+        final Pair<int[][], IdDictionary> pair = Import.load(input, "\t", idType, false);
+        run(pair.getKey(), pair.getValue(), output, weight, false);
     };
 
     private static void printError() {
-        System.err.println("Usage: run_comb_coreA.sh input_path output_path weight");
+        System.err.println("Usage: run_comb_coreA.sh input_path output_path weight [id_type]");
         System.err.println("weight should be greater than or equal to 0");
         System.err.println("weight should be set 0 to run simple DSM without CoreA");
+        System.err.println("id_type should be one of [int, long, string] (default: int)");
     }
 
     /**
@@ -59,11 +63,22 @@ public class CombineCoreA {
      * @param weight weight that result of CoreA is multiplied by for being balanced with average degree
      */
     public static void run(int[][] graph, String output, int weight, boolean useTruss) throws IOException {
+        run(graph, IdDictionary.identity(), output, weight, useTruss);
+    }
+
+    /**
+     * Run CombineCoreA with the given graph and CoreA scores for nodes
+     * @param graph input graph
+     * @param dictionary    original IDs of vertices, written to the output file
+     * @param output path of the output file
+     * @param weight weight that result of CoreA is multiplied by for being balanced with average degree
+     */
+    public static void run(int[][] graph, IdDictionary dictionary, String output, int weight, boolean useTruss) throws IOException {
 
         double[] nodeSuspiciousness = null;
         if(weight != 0) {
             int[] degree = Degree.run(graph);
-            int[] coreness = useTruss ? TrussDecomp.run(graph, false) : CoreDecomp.run(graph, false);
+            int[] coreness = useTruss ? TrussDecomp.run(graph, false, TrussDecomp.defaultEngine()) : CoreDecomp.run(graph, false);
             nodeSuspiciousness = CoreA.getAnomalyScore(degree, coreness);
             for(int i=0; i<nodeSuspiciousness.length; i++) {
                 nodeSuspiciousness[i] = weight * nodeSuspiciousness[i];
@@ -77,7 +92,7 @@ public class CombineCoreA {
                 anomalies.add(node);
             }
         }
-        writeResult(output, anomalies);
+        writeResult(output, anomalies, dictionary);
     }
 
     /**
@@ -86,11 +101,21 @@ public class CombineCoreA {
      * @param anomalies list of anomalies
      */
     public static void writeResult(String output, Set<Integer> anomalies) throws IOException {
+        writeResult(output, anomalies, IdDictionary.identity());
+    }
+
+    /**
+     *
+     * @param output path of the output file
+     * @param anomalies list of anomalies
+     * @param dictionary    original IDs of vertices
+     */
+    public static void writeResult(String output, Set<Integer> anomalies, IdDictionary dictionary) throws IOException {
         final BufferedWriter bw = new BufferedWriter(new FileWriter(output));
         bw.write("vertex_index");
         bw.newLine();
         for(int node : anomalies) {
-            bw.write(String.valueOf(node));
+            bw.write(dictionary.toOriginal(node));
             bw.newLine();
         }
         bw.close();
@@ -15,26 +15,21 @@
 
 package corescope.anomaly;
 
-import corescope.CoreDecomp;
+import corescope.IdDictionary;
 import corescope.Import;
 import corescope.Pair;
-import corescope.TrussDecomp;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
 
 public class CombineTrussA {
 
     /**
      * Main function
-     * @param args  input_path, output_path, weight
+     * @param args  input_path, output_path, weight, [id_type]
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
-        if(args.length != 3) {
+        if(args.length != 3 && args.length != 4) {
             printError();
             System.exit(-1);
         }
@@ -42,14 +37,17 @@ public class CombineTrussA {
         final String input = args[0];
         final String output = args[1];
         final int weight = Integer.valueOf(args[2]);
+        final IdDictionary.Type idType = args.length == 4 ? IdDictionary.Type.parse(args[3]) : IdDictionary.Type.INT;
 
-        CombineCoreA.run(Import.load(input, "\t"), output, weight, true);
+        final Pair<int[][], IdDictionary> pair = Import.load(input, "\t", idType, false);
+        CombineCoreA.run(pair.getKey(), pair.getValue(), output, weight, true);
     };
 
     private static void printError() {
-        System.err.println("Usage: run_comb_trussA.sh input_path output_path weight");
+        System.err.println("Usage: run_comb_trussA.sh input_path output_path weight [id_type]");
         System.err.println("weight should be greater than or equal to 0");
         System.err.println("weight should be set 0 to run simple DSM without Truss-A");
+        System.err.println("id_type should be one of [int, long, string] (default: int)");
     }
 
 }
@@ -16,12 +16,10 @@
 package corescope.anomaly;
 
 import corescope.CoreDecomp;
+import corescope.IdDictionary;
 import corescope.Import;
+import corescope.Pair;
 import corescope.TrussDecomp;
-import org.apache.commons.math3.stat.ranking.NaNStrategy;
-import org.apache.commons.math3.stat.ranking.NaturalRanking;
-import org.apache.commons.math3.stat.ranking.RankingAlgorithm;
-import org.apache.commons.math3.stat.ranking.TiesStrategy;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
@@ -35,23 +33,26 @@ public class CoreA {
 
     /**
      * Main function
-     * @param args  input_path, output_path
+     * @param args  input_path, output_path, [id_type]
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
-        if(args.length != 2) {
+        if(args.length != 2 && args.length != 3) {
             printError();
             System.exit(-1);
         }
 
         final String input = args[0];
         final String output = args[1];
+        final IdDictionary.Type idType = args.length == 3 ? IdDictionary.Type.parse(args[2]) : IdDictionary.Type.INT;
 
-        run(Import.load(input, "\t"), output, false);
+        final Pair<int[][], IdDictionary> pair = Import.load(input, "\t", idType, false);
+        run(pair.getKey(), pair.getValue(), output, false);
     };
 
     private static void printError() {
-        System.err.println("Usage: run_coreA.sh input_path output_path");
+        System.err.println("Usage: run_coreA.sh input_path output_path [id_type]");
+        System.err.println("id_type should be one of [int, long, string] (default: int)");
     }
 
     /**
@@ -61,22 +62,40 @@ public class CoreA {
      * @throws IOException
      */
     public static void run(int[][] graph, String output, boolean useTruss) throws IOException {
+        run(graph, IdDictionary.identity(), output, useTruss);
+    }
+
+    /**
+     * run anomaly detection algorithm based on core or truss decomposition
+     * @param graph input graph
+     * @param dictionary    original IDs of vertices, written to the output file
+     * @param output path of the output file
+     * @throws IOException
+     */
+    public static void run(int[][] graph, IdDictionary dictionary, String output, boolean useTruss) throws IOException {
 
-        final int n = graph.length;
-        final int[] coreness = useTruss ? TrussDecomp.run(graph, false) : CoreDecomp.run(graph, false);
-        final int[] degree = Degree.run(graph);
+        final int[] coreness = useTruss ? TrussDecomp.run(graph, false, TrussDecomp.defaultEngine()) : CoreDecomp.run(graph, false);
+        run(coreness, Degree.run(graph), dictionary, output, useTruss);
 
-        final RankingAlgorithm rankAlgoSeq = new NaturalRanking(NaNStrategy.FAILED, TiesStrategy.SEQUENTIAL);
-        final double[] anomaly = getAnomalyScore(degree, coreness);
-        final double[] anomalyRankSeq = rankAlgoSeq.rank(anomaly);
+    }
 
-        final int[] orderedIndices = new int[n];
-        for(int i = 0; i < n; i++) {
-            orderedIndices[(int)anomalyRankSeq[i]-1] = i;
-        }
+    /**
+     * run anomaly detection algorithm on precomputed corenesses (or trussnesses), e.g., maintained by
+     * {@link corescope.DynamicCore} or {@link corescope.DynamicTruss}
+     * @param coreness corenesses (or trussnesses) of nodes
+     * @param degree degrees of nodes
+     * @param dictionary    original IDs of vertices, written to the output file
+     * @param output path of the output file
+     * @throws IOException
+     */
+    public static void run(int[] coreness, int[] degree, IdDictionary dictionary, String output, boolean useTruss) throws IOException {
+
+        final int n = degree.length;
 
-        final RankingAlgorithm rankAlgoAvg = new NaturalRanking(NaNStrategy.FAILED, TiesStrategy.AVERAGE);
-        final double[] anomalyRankAvg = rankAlgoAvg.rank(anomaly);
+        final double[] anomaly = getAnomalyScore(degree, coreness);
+        final long[] anomalyKeys = Ranking.keys(anomaly);
+        final int[] orderedIndices = Ranking.order(anomalyKeys); // sequential ranks
+        final double[] anomalyRankAvg = Ranking.rankAverage(anomalyKeys, orderedIndices);
 
         // write results in descending order of anomaly score
         final BufferedWriter bw = new BufferedWriter(new FileWriter(output));
@@ -84,7 +103,7 @@ public class CoreA {
         bw.newLine();
         for(int i = n - 1; i >= 0; i--) {
             final int index = orderedIndices[i];
-            bw.write((n-anomalyRankAvg[index]+1) + "\t" + index + "\t" + anomaly[index] + "\t" + coreness[index] + "\t" + degree[index]);
+            bw.write((n-anomalyRankAvg[index]+1) + "\t" + dictionary.toOriginal(index) + "\t" + anomaly[index] + "\t" + coreness[index] + "\t" + degree[index]);
             bw.newLine();
         }
         bw.close();
@@ -100,13 +119,12 @@ public class CoreA {
     public static double[] getAnomalyScore(int[] degree, int[] coreness) {
 
         int n = degree.length;
-        final int[] corenessWithDegree = new int[n];
+        final long[] corenessWithDegree = new long[n];
         for(int i=0; i<n; i++) {
-            corenessWithDegree[i] = coreness[i] * n + degree[i];
+            corenessWithDegree[i] = (long) coreness[i] * n + degree[i];
         }
-        final RankingAlgorithm rankAlgoAvg = new NaturalRanking(NaNStrategy.FAILED, TiesStrategy.AVERAGE);
-        final double[] corenessRank = rankAlgoAvg.rank(transform(corenessWithDegree));
-        final double[] degreeRank = rankAlgoAvg.rank(transform(degree));
+        final double[] corenessRank = Ranking.rankAverage(corenessWithDegree);
+        final double[] degreeRank = Ranking.rankAverage(Ranking.keys(degree));
 
         //compute anomaly scores
         final double[] anomaly = new double[n];
@@ -117,17 +135,4 @@ public class CoreA {
         return anomaly;
     }
 
-    /**
-     * transform an int array to a double array
-     * @param values
-     * @return
-     */
-    private static double[] transform(int[] values) {
-        double[] result = new double[values.length];
-        for(int i = 0; i < values.length; i++) {
-            result[i] = values[i];
-        }
-        return result;
-    }
-
 }
@@ -0,0 +1,129 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope.anomaly;
+
+import java.util.Arrays;
+
+/**
+ * Ranking of 64-bit keys by least-significant-digit radix sort
+ *
+ * Keys are compared as unsigned integers and sorted stably with one counting-sort pass per 16-bit digit, skipping the
+ * digits above the highest set bit, so small keys such as degrees take a single pass. Ranks start from 1, as in
+ * commons-math NaturalRanking: ties get the average of their ranks (TiesStrategy.AVERAGE) or, in the sorted order,
+ * consecutive ranks in the order of their indices (TiesStrategy.SEQUENTIAL).
+ */
+class Ranking {
+
+    private static final int DIGIT_BITS = 16;
+
+    private static final int DIGIT_MASK = (1 << DIGIT_BITS) - 1;
+
+    /**
+     * @param values    degrees or corenesses
+     * @return keys in the same order as the values
+     */
+    static long[] keys(int[] values) {
+        int min = 0;
+        for(int value : values) {
+            min = Math.min(min, value);
+        }
+        final long[] keys = new long[values.length];
+        for(int i=0; i<values.length; i++) {
+            keys[i] = (long) values[i] - min;
+        }
+        return keys;
+    }
+
+    /**
+     * @param values    values other than NaN
+     * @return keys in the order of Double.compare on the values, as in NaturalRanking
+     */
+    static long[] keys(double[] values) {
+        final long[] keys = new long[values.length];
+        for(int i=0; i<values.length; i++) {
+            final long bits = Double.doubleToLongBits(values[i]);
+            keys[i] = bits >= 0 ? bits | Long.MIN_VALUE : ~bits;
+        }
+        return keys;
+    }
+
+    /**
+     * @param keys  unsigned keys
+     * @return indices in ascending order of keys, with ties in ascending order of indices; the index at position i
+     *         has sequential rank i+1
+     */
+    static int[] order(long[] keys) {
+        final int n = keys.length;
+        long bits = 0;
+        for(long key : keys) {
+            bits |= key;
+        }
+        int[] order = new int[n];
+        for(int i=0; i<n; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[n];
+        final int[] count = new int[DIGIT_MASK + 2];
+        for(int shift=0; shift<64 && (bits >>> shift) != 0; shift+=DIGIT_BITS) {
+            Arrays.fill(count, 0);
+            for(int i=0; i<n; i++) {
+                count[(int) ((keys[i] >>> shift) & DIGIT_MASK) + 1]++;
+            }
+            for(int d=0; d<=DIGIT_MASK; d++) {
+                count[d + 1] += count[d];
+            }
+            for(int i=0; i<n; i++) {
+                final int index = order[i];
+                buffer[count[(int) ((keys[index] >>> shift) & DIGIT_MASK)]++] = index;
+            }
+            final int[] temp = order;
+            order = buffer;
+            buffer = temp;
+        }
+        return order;
+    }
+
+    /**
+     * @param keys  unsigned keys
+     * @return ranks of keys with ties averaged
+     */
+    static double[] rankAverage(long[] keys) {
+        return rankAverage(keys, order(keys));
+    }
+
+    /**
+     * @param keys  unsigned keys
+     * @param order result of {@link #order} on keys
+     * @return ranks of keys with ties averaged
+     */
+    static double[] rankAverage(long[] keys, int[] order) {
+        final int n = keys.length;
+        final double[] ranks = new double[n];
+        int from = 0;
+        while(from < n) {
+            int to = from + 1;
+            while(to < n && keys[order[to]] == keys[order[from]]) {
+                to++;
+            }
+            final double rank = (2d * (from + 1) + (to - from) - 1) / 2d;
+            for(int i=from; i<to; i++) {
+                ranks[order[i]] = rank;
+            }
+            from = to;
+        }
+        return ranks;
+    }
+}
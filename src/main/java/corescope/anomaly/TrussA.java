@@ -15,16 +15,10 @@
 
 package corescope.anomaly;
 
-import corescope.CoreDecomp;
+import corescope.IdDictionary;
 import corescope.Import;
-import corescope.TrussDecomp;
-import org.apache.commons.math3.stat.ranking.NaNStrategy;
-import org.apache.commons.math3.stat.ranking.NaturalRanking;
-import org.apache.commons.math3.stat.ranking.RankingAlgorithm;
-import org.apache.commons.math3.stat.ranking.TiesStrategy;
-
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import corescope.Pair;
+
 import java.io.IOException;
 
 /**
@@ -35,23 +29,26 @@ public class TrussA {
 
     /**
      * Main function
-     * @param args  input_path, output_path
+     * @param args  input_path, output_path, [id_type]
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
-        if(args.length != 2) {
+        if(args.length != 2 && args.length != 3) {
             printError();
             System.exit(-1);
         }
 
         final String input = args[0];
         final String output = args[1];
+        final IdDictionary.Type idType = args.length == 3 ? IdDictionary.Type.parse(args[2]) : IdDictionary.Type.INT;
 
-        CoreA.run(Import.load(input, "\t"), output, true);
+        final Pair<int[][], IdDictionary> pair = Import.load(input, "\t", idType, false);
+        CoreA.run(pair.getKey(), pair.getValue(), output, true);
     };
 
     private static void printError() {
-        System.err.println("Usage: run_trussA.sh input_path output_path");
+        System.err.println("Usage: run_trussA.sh input_path output_path [id_type]");
+        System.err.println("id_type should be one of [int, long, string] (default: int)");
     }
 
 }
@@ -15,6 +15,8 @@
 
 package corescope.influence;
 
+import corescope.SubgraphView;
+
 /**
  * Compute Eigenvector Centrality Using Power Iteration
  * @author Kijung Shin
@@ -51,4 +53,43 @@ public class EigenvectorCentrality {
         }
         return centralities;
     }
+
+    /**
+     * compute eigenvector centralities on a subgraph without materializing it
+     * @param view  subgraph
+     * @return centralities (index in the view -> centrality), identical to run(view.materialize())
+     */
+    public static double[] run(SubgraphView view) {
+
+        int n = view.numNodes();
+        double[] centralities = new double[n];
+        for(int i=0; i<n; i++) {
+            centralities[i] = 1;
+        }
+
+        double max = 0;
+        while(true) {
+            double[] temp = new double[n];
+            max = 0;
+            double changeSum = 0;
+            for(int i=0; i<n; i++) {
+                for(int trg : view.parentNeighbors(i)) {
+                    final int index = view.toIndex(trg);
+                    if(index >= 0) {
+                        temp[i] += centralities[index];
+                    }
+                }
+                max = Math.max(max, temp[i]);
+            }
+            for(int i=0; i<n; i++) {
+                changeSum += Math.abs(centralities[i] - temp[i]/max);
+                centralities[i] = temp[i]/max;
+            }
+
+            if (changeSum < 0.00000001) {
+                break;
+            }
+        }
+        return centralities;
+    }
 }
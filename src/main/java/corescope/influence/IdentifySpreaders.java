@@ -15,10 +15,11 @@
 
 package corescope.influence;
 
-import corescope.CoreDecomp;
+import corescope.IdDictionary;
 import corescope.Import;
 import corescope.KCore;
 import corescope.Pair;
+import corescope.SubgraphView;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
@@ -33,11 +34,11 @@ public class IdentifySpreaders {
 
     /**
      * Main function
-     * @param args  input_path, output_path, output_num
+     * @param args  input_path, output_path, output_num, [id_type]
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
-        if(args.length != 3) {
+        if(args.length != 3 && args.length != 4) {
             printError();
             System.exit(-1);
         }
@@ -45,8 +46,10 @@ public class IdentifySpreaders {
         final String input = args[0];
         final String output = args[1];
         final int numOfSpreaders = Integer.valueOf(args[2]);
+        final IdDictionary.Type idType = args.length == 4 ? IdDictionary.Type.parse(args[3]) : IdDictionary.Type.INT;
 
-        writeResults(output, "\t", run(Import.load(input, "\t"), numOfSpreaders));
+        final Pair<int[][], IdDictionary> pair = Import.load(input, "\t", idType, false);
+        writeResults(output, "\t", run(pair.getKey(), numOfSpreaders), pair.getValue());
     };
 
     /**
@@ -56,20 +59,19 @@ public class IdentifySpreaders {
      * @throws IOException
      */
     public static int[] run(int[][] graph, int numOfSpreaders) throws IOException {
-        final Pair<int[][], int[]> pair = KCore.getDegeneracyCore(graph, CoreDecomp.run(graph, false));
-        final int[][] core = pair.getKey();
-        final int[] originalIndex = pair.getValue();
+        final SubgraphView core = KCore.getDegeneracyCoreView(graph);
         final int[] spreadersInCoreIndex = topK(EigenvectorCentrality.run(core), numOfSpreaders);
         final int[] spreadersInOriginalIndex = new int[spreadersInCoreIndex.length];
         for(int i=0; i<spreadersInCoreIndex.length; i++) {
-            spreadersInOriginalIndex[i] = originalIndex[spreadersInCoreIndex[i]];
+            spreadersInOriginalIndex[i] = core.toOriginal(spreadersInCoreIndex[i]);
         }
         return spreadersInOriginalIndex;
     }
 
     private static void printError() {
-        System.err.println("Usage: run_coreS.sh input_path output_path num_of_spreaders");
+        System.err.println("Usage: run_coreS.sh input_path output_path num_of_spreaders [id_type]");
         System.err.println("num_of_spreaders should be greater than or equal to 1");
+        System.err.println("id_type should be one of [int, long, string] (default: int)");
     }
 
     /**
@@ -78,14 +80,15 @@ public class IdentifySpreaders {
      * @param output    output file path
      * @param delim delimiter used in the output file
      * @param spreaders   list of spreaders
+     * @param dictionary    original IDs of vertices
      * @throws IOException
      */
-    private static void writeResults(final String output, final String delim, final int[] spreaders) throws IOException {
+    private static void writeResults(final String output, final String delim, final int[] spreaders, final IdDictionary dictionary) throws IOException {
         final BufferedWriter bw = new BufferedWriter(new FileWriter(output));
         bw.write("rank" + delim + "vertex_index");
         bw.newLine();
         for(int i=0; i<spreaders.length; i++) {
-            bw.write((i+1) + delim + spreaders[i]);
+            bw.write((i+1) + delim + dictionary.toOriginal(spreaders[i]));
             bw.newLine();
         }
         bw.close();
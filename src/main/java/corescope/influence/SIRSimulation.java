@@ -14,9 +14,9 @@
  */
 package corescope.influence;
 
-import corescope.CoreDecomp;
+import corescope.IdDictionary;
 import corescope.Import;
-import corescope.KCore;
+import corescope.Pair;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
@@ -31,11 +31,11 @@ public class SIRSimulation {
 
     /**
      * Main function
-     * @param args  input_path, output_path, num_of_spreaders, infection_rate, repetition_num
+     * @param args  input_path, output_path, num_of_spreaders, infection_rate, repetition_num, [id_type]
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
-        if(args.length != 5) {
+        if(args.length != 5 && args.length != 6) {
             printError();
             System.exit(-1);
         }
@@ -46,19 +46,22 @@ public class SIRSimulation {
         final int numOfSpreaders = Integer.valueOf(args[2]);
         final double infectedRatio = Double.valueOf(args[3]);
         final int repetition = Integer.valueOf(args[4]);
+        final IdDictionary.Type idType = args.length == 6 ? IdDictionary.Type.parse(args[5]) : IdDictionary.Type.INT;
         final Random random = new Random();
 
-        final int[][] graph = Import.load(input, delim);
+        final Pair<int[][], IdDictionary> pair = Import.load(input, delim, idType, false);
+        final int[][] graph = pair.getKey();
         final int[] seeds = IdentifySpreaders.run(graph, numOfSpreaders);
-        run(graph, seeds, output, infectedRatio, repetition, random);
+        run(graph, pair.getValue(), seeds, output, infectedRatio, repetition, random);
 
 
     }
 
     private static void printError() {
-        System.err.println("Usage: run_SIR_simulation.sh input_path output_path num_of_spreaders, infection_rate, repetition_num");
+        System.err.println("Usage: run_SIR_simulation.sh input_path output_path num_of_spreaders, infection_rate, repetition_num, [id_type]");
         System.err.println("Infection_rate should be in (0,1]");
         System.err.println("Repetition_num should be an integer greater than 0");
+        System.err.println("Id_type should be one of [int, long, string] (default: int)");
     }
 
     /**
@@ -70,13 +73,26 @@ public class SIRSimulation {
      * @param random    random number generator
      */
     public static void run(final int[][] graph, final int[] seeds, final String output, final double infectionRatio, final int repetition, final Random random) throws IOException {
+        run(graph, IdDictionary.identity(), seeds, output, infectionRatio, repetition, random);
+    }
+
+    /**
+     * run SIR simulation with each of given seeds
+     * @param graph input graph
+     * @param dictionary    original IDs of vertices, written to the output file
+     * @param output output file path
+     * @param infectionRatio    probability that an infected node infects each of its neighbors
+     * @param repetition    number of repetitions of simluation for each seed
+     * @param random    random number generator
+     */
+    public static void run(final int[][] graph, final IdDictionary dictionary, final int[] seeds, final String output, final double infectionRatio, final int repetition, final Random random) throws IOException {
 
         int[][] seedsPool = new int[seeds.length][1];
         for(int i=0; i<seeds.length; i++) {
             seedsPool[i][0] = seeds[i];
         }
         double[] influence = runSimulation(graph, infectionRatio, seedsPool, repetition, random);
-        writeResults(output, "\t", seeds, influence);
+        writeResults(output, "\t", seeds, influence, dictionary);
     }
 
     /**
@@ -86,14 +102,15 @@ public class SIRSimulation {
      * @param delim delimiter used in the output file
      * @param seeds   list of nodes used as seeds
      * @param influence   influence of each seed
+     * @param dictionary    original IDs of vertices
      * @throws IOException
      */
-    private static void writeResults(final String output, final String delim, final int[] seeds, final double[] influence) throws IOException {
+    private static void writeResults(final String output, final String delim, final int[] seeds, final double[] influence, final IdDictionary dictionary) throws IOException {
         final BufferedWriter bw = new BufferedWriter(new FileWriter(output));
         bw.write("vertex_index" + delim + "influence");
         bw.newLine();
         for(int i=0; i<seeds.length; i++) {
-            bw.write("" + seeds[i] + delim + influence[i]);
+            bw.write(dictionary.toOriginal(seeds[i]) + delim + influence[i]);
             bw.newLine();
         }
         bw.close();
@@ -0,0 +1,399 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope.singlepass;
+
+import corescope.CoreDecomp;
+import corescope.EdgeScanner;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Exact degeneracy from sequential passes over an edge list, keeping only per-vertex state in memory
+ *
+ * The k-core is non-empty if and only if iteratively removing the vertices with fewer than k neighbors among the
+ * remaining ones leaves a vertex. In each pass over the file, each edge decreases the degree of one endpoint if the
+ * other was removed since the edge was last read, so removals cascade within a pass, and a pass that reads no such
+ * edge for a full round ends the peeling. If the k-core is non-empty, the
+ * degeneracy is at least the minimum degree in it. The degeneracy is found by galloping from an estimate (e.g., by
+ * {@link SinglePass}) until it is bracketed and then by a binary search, where each probe starts from the last
+ * non-empty core found. Once at most n edges remain during a probe of k, the remaining vertices are loaded in one
+ * more pass and the degeneracy of the subgraph induced by them is computed in memory. The remaining vertices contain
+ * the k-core, so that is the degeneracy of the entire graph if it is at least k, and otherwise a lower bound of it,
+ * with the k-core empty. Vertex IDs index the per-vertex arrays, so memory is linear in the max vertex ID.
+ * As in {@link SinglePass}, each edge should be listed in both directions, and only the lines with src < trg are read.
+ */
+public class ExactDegeneracy {
+
+    /**
+     * Degeneracy and the number of passes over the file used to compute it
+     */
+    public static class Result {
+
+        public final int degeneracy;
+
+        public final int passes;
+
+        Result(int degeneracy, int passes) {
+            this.degeneracy = degeneracy;
+            this.passes = passes;
+        }
+    }
+
+    /**
+     * results of {@link #peel}
+     */
+    private static final int EMPTY = 0;
+
+    private static final int FOUND = 1;
+
+    private static final int LOADED = 2;
+
+    private final FileChannel channel;
+
+    private final long[] boundaries;
+
+    private final byte delim;
+
+    private final boolean verbose;
+
+    /**
+     * max vertex ID + 1
+     */
+    private int n = 0;
+
+    /**
+     * vertex ID -> number of neighbors among the remaining vertices
+     */
+    private int[] degrees;
+
+    private int passes = 0;
+
+    /**
+     * degeneracy of the subgraph loaded by the last call of {@link #peel}
+     */
+    private int loadedDegeneracy;
+
+    /**
+     * number of edges read in each pass
+     */
+    private long edgeNum = 0;
+
+    /**
+     * vertex ID -> time (number of edges read before) of its removal from the current core
+     */
+    private long[] removedAt;
+
+    private long lastRemoval;
+
+    private long time;
+
+    /**
+     * number of vertices in the current core
+     */
+    private int size;
+
+    private ExactDegeneracy(FileChannel channel, byte delim, boolean verbose) throws IOException {
+        this.channel = channel;
+        this.boundaries = EdgeScanner.split(channel, 1);
+        this.delim = delim;
+        this.verbose = verbose;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1 && args.length != 3) {
+            printError();
+            System.exit(-1);
+        }
+
+        final String input = args[0];
+        final String delim = "\t";
+        int model = SinglePass.MODEL_OVERALL;
+        double p = 0.1;
+        if(args.length == 3) {
+            if(args[1].compareToIgnoreCase("BASIC")==0) {
+                model = SinglePass.MODEL_BASIC;
+            }
+            else if(args[1].compareToIgnoreCase("TRIANGLE")==0){
+                model = SinglePass.MODEL_TRIANGLE;
+            }
+            else if(args[1].compareToIgnoreCase("OVERALL")==0) {
+                model = SinglePass.MODEL_OVERALL;
+            }
+            else {
+                System.err.println("Unknown Model Error");
+                printError();
+                System.exit(-1);
+            }
+            p = Double.valueOf(args[2]);
+        }
+
+        final double estimate = SinglePass.run(input, delim, model, p);
+        System.out.println("Estimated degeneray: " + estimate);
+        final Result result = run(input, delim, (int) Math.round(estimate), true);
+        System.out.println("Exact degeneracy: " + result.degeneracy);
+        System.out.println("Passes over the input after the estimate: " + result.passes);
+    }
+
+    private static void printError() {
+        System.err.println("Usage: run_coreD_exact.sh input_path [model sampling_ratio]");
+        System.err.println("The search for the exact degeneracy starts from the estimate of the model (default: overall 0.1)");
+        System.err.println("Model should be one of [basic, triangle, overall]");
+        System.err.println("Sampling_ratio should be in (0,1]");
+    }
+
+    /**
+     * compute the degeneracy of a graph in sequential passes over its edge list
+     * @param path   path to the input graph file
+     * @param delim  delimeter used in the input graph file
+     * @param seed  first k to probe (e.g., the estimated degeneracy)
+     * @param verbose whether to print progress
+     * @return  degeneracy and number of passes over the file
+     * @throws IOException
+     */
+    public static Result run(String path, String delim, int seed, boolean verbose) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            return new ExactDegeneracy(file.getChannel(), EdgeScanner.toByte(delim), verbose).search(seed);
+        } finally {
+            file.close();
+        }
+    }
+
+    private Result search(int seed) throws IOException {
+
+        final long startTime = System.currentTimeMillis();
+
+        // Pass 1. compute the degrees of vertices
+        degrees = new int[16];
+        scan(new EdgeScanner.Visitor() {
+            @Override
+            public void edge(int src, int trg) {
+                if(src < trg) {
+                    if(trg >= degrees.length) {
+                        degrees = Arrays.copyOf(degrees, Math.max(trg + 1, (int) Math.min(Integer.MAX_VALUE - 8, 2L * degrees.length)));
+                    }
+                    degrees[src]++;
+                    degrees[trg]++;
+                    n = Math.max(n, trg + 1);
+                    edgeNum++;
+                }
+            }
+        });
+        degrees = Arrays.copyOf(degrees, n);
+        removedAt = new long[n];
+        if(verbose)
+            System.err.println("Pass " + passes + ": degrees of " + n + " vertices counted");
+
+        // the 0-core is the entire graph
+        BitSet core = new BitSet(n);
+        core.set(0, n);
+        int lo = minDegree(core); // the degeneracy is at least lo
+        int hi = 1; // the degeneracy is less than hi
+        for(int v=0; v<n; v++) {
+            hi = Math.max(hi, degrees[v] + 1);
+        }
+
+        // gallop from the seed until the degeneracy is bracketed, and then bisect
+        int k = Math.max(lo + 1, Math.min(seed, hi - 1));
+        int step = 1;
+        boolean grown = false; // whether a k-core was found
+        boolean shrunk = false; // whether a k-core was empty
+        int[] saved = new int[n];
+        while(lo + 1 < hi) {
+            if(verbose)
+                System.err.println("Probing k=" + k + ", degeneracy in [" + lo + ", " + hi + ")");
+            final BitSet candidate = (BitSet) core.clone();
+            System.arraycopy(degrees, 0, saved, 0, n);
+            final int result = peel(candidate, k);
+            if(result == LOADED && loadedDegeneracy >= k) {
+                // the remaining vertices contain the k-core and thus the degeneracy-core
+                lo = loadedDegeneracy;
+                break;
+            }
+            if(result == FOUND) {
+                grown = true;
+                core = candidate;
+                lo = minDegree(core);
+                if(verbose)
+                    System.err.println("k-core with " + core.cardinality() + " vertices found, degeneracy >= " + lo);
+            }
+            else {
+                final int[] temp = degrees;
+                degrees = saved;
+                saved = temp;
+                shrunk = true;
+                hi = k;
+                if(verbose)
+                    System.err.println("k-core is empty, degeneracy in [" + Math.max(lo, result == LOADED ? loadedDegeneracy : lo) + ", " + k + ")");
+            }
+            if(result == LOADED) {
+                // the loaded subgraph usually contains the degeneracy-core; test whether its degeneracy is exact
+                grown = true;
+                lo = Math.max(lo, loadedDegeneracy);
+                k = lo + 1;
+            }
+            else if(!shrunk) {
+                k = (int) Math.min(hi - 1, (long) lo + step);
+            }
+            else if(!grown) {
+                k = (int) Math.max(lo + 1, (long) hi - step);
+            }
+            else {
+                k = (lo + 1 + hi) >>> 1;
+            }
+            step = Math.min(step * 2, 1 << 30);
+        }
+
+        if(verbose)
+            System.err.println("Degeneracy " + lo + " is computed after " + passes + " passes... (" + (System.currentTimeMillis() - startTime) + "ms)");
+
+        return new Result(lo, passes);
+    }
+
+    /**
+     * reduce a core to the k-core, or load the remaining vertices once the edges among them fit in O(n) memory
+     * @param core  vertices in a j-core with j < k whose degrees in it are in {@link #degrees}; replaced by the
+     *              remaining vertices
+     * @param k number of neighbors each vertex in the k-core has in it
+     * @return EMPTY if the k-core is empty, FOUND if core is the k-core, whose degrees are in {@link #degrees}, or
+     *         LOADED if core contains the k-core and {@link #loadedDegeneracy} is the degeneracy of the subgraph
+     *         induced by core
+     */
+    private int peel(final BitSet core, final int k) throws IOException {
+
+        // the removal of a vertex at time r is propagated to its neighbors by the edges read in (r, r + edgeNum]
+        Arrays.fill(removedAt, Long.MIN_VALUE);
+        final long start = (long) passes * edgeNum;
+        for(int v=core.nextSetBit(0); v>=0; v=core.nextSetBit(v+1)) {
+            if(degrees[v] < k) {
+                core.clear(v);
+                removedAt[v] = start - 1;
+                lastRemoval = start - 1;
+            }
+        }
+        size = core.cardinality();
+
+        while(size > k) { // a k-core has at least k+1 vertices
+            if(edgeBound(core) <= n) {
+                loadedDegeneracy = decompose(core);
+                return LOADED;
+            }
+            if(lastRemoval < (long) (passes - 1) * edgeNum) {
+                return FOUND;
+            }
+            time = (long) passes * edgeNum;
+            scan(new EdgeScanner.Visitor() {
+                @Override
+                public void edge(int src, int trg) {
+                    if(src < trg) {
+                        propagate(core, src, trg, k);
+                        propagate(core, trg, src, k);
+                        time++;
+                    }
+                }
+            });
+            if(verbose)
+                System.err.println("Pass " + passes + ": " + size + " vertices remain");
+        }
+        return EMPTY;
+    }
+
+    /**
+     * decrease the degree of v if the removal of u has not been propagated through the edge (u, v) read now
+     */
+    private void propagate(BitSet core, int u, int v, int k) {
+        final long removal = removedAt[u];
+        if(removal < time && removal >= time - edgeNum && core.get(v)) {
+            if(--degrees[v] < k) {
+                core.clear(v);
+                removedAt[v] = time;
+                lastRemoval = time;
+                size--;
+            }
+        }
+    }
+
+    /**
+     * @return upper bound of the number of edges among the vertices in a set, from {@link #degrees}
+     */
+    private long edgeBound(BitSet core) {
+        long sum = 0;
+        for(int v=core.nextSetBit(0); v>=0; v=core.nextSetBit(v+1)) {
+            sum += degrees[v];
+        }
+        return sum / 2;
+    }
+
+    /**
+     * load the subgraph induced by a set in one pass and compute its degeneracy in memory
+     * @param core  vertices whose degrees in the subgraph are at most {@link #degrees}
+     * @return degeneracy of the subgraph
+     */
+    private int decompose(final BitSet core) throws IOException {
+        final int size = core.cardinality();
+        final int[][] graph = new int[size][];
+        final int[] fill = new int[size];
+        final int[] index = new int[n];
+        int i = 0;
+        for(int v=core.nextSetBit(0); v>=0; v=core.nextSetBit(v+1)) {
+            index[v] = i;
+            graph[i++] = new int[degrees[v]];
+        }
+        scan(new EdgeScanner.Visitor() {
+            @Override
+            public void edge(int src, int trg) {
+                if(src < trg && core.get(src) && core.get(trg)) {
+                    final int u = index[src];
+                    final int v = index[trg];
+                    graph[u][fill[u]++] = v;
+                    graph[v][fill[v]++] = u;
+                }
+            }
+        });
+        for(i=0; i<size; i++) {
+            if(fill[i] < graph[i].length) {
+                graph[i] = Arrays.copyOf(graph[i], fill[i]);
+            }
+        }
+
+        int degeneracy = 0;
+        for(int coreness : CoreDecomp.run(graph, false)) {
+            degeneracy = Math.max(degeneracy, coreness);
+        }
+        if(verbose)
+            System.err.println("Pass " + passes + ": subgraph with " + size + " vertices loaded, degeneracy " + degeneracy);
+        return degeneracy;
+    }
+
+    private int minDegree(BitSet core) {
+        int min = Integer.MAX_VALUE;
+        for(int v=core.nextSetBit(0); v>=0; v=core.nextSetBit(v+1)) {
+            min = Math.min(min, degrees[v]);
+        }
+        return min == Integer.MAX_VALUE ? 0 : min;
+    }
+
+    private void scan(EdgeScanner.Visitor visitor) throws IOException {
+        passes++;
+        for(int i=0; i+1<boundaries.length; i++) {
+            EdgeScanner.scan(channel, boundaries[i], boundaries[i + 1], delim, visitor, false);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope.singlepass;
+
+import corescope.EdgeIndex;
+import corescope.EdgeSupport;
+import corescope.Parallel;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SinglePass for several sampling ratios and all models in one pass over the stream
+ *
+ * Each edge gets a pseudo-random value in [0, 1) from a hash of its endpoints and belongs to the sample of ratio p
+ * if the value is less than p, so the samples are nested and only the one of the largest ratio is kept.
+ * For each ratio, the number of triangles is estimated by T_s/p^3 with variance T(1/p^3-1) + 2S(1/p-1), where T_s is
+ * the number of triangles in the sample and S is the number of pairs of triangles sharing an edge, estimated by
+ * S_s/p^5. The normal confidence interval of the number of triangles is mapped through each regression model, which
+ * is increasing in the number of triangles. The basic model does not depend on the sample and has no interval.
+ */
+public class MultiRate {
+
+    /**
+     * Estimated degeneracy of a model at a sampling ratio
+     */
+    public static class Result {
+
+        public final int model;
+
+        public final double ratio;
+
+        /**
+         * estimated number of triangles and its standard error (0 for the basic model)
+         */
+        public final double triangles;
+
+        public final double stdError;
+
+        public final double estimate;
+
+        public final double lower;
+
+        public final double upper;
+
+        Result(int model, double ratio, double triangles, double stdError, double estimate, double lower, double upper) {
+            this.model = model;
+            this.ratio = ratio;
+            this.triangles = triangles;
+            this.stdError = stdError;
+            this.estimate = estimate;
+            this.lower = lower;
+            this.upper = upper;
+        }
+    }
+
+    private static final String[] MODEL_NAMES = {"basic", "triangle", "overall"};
+
+    /**
+     * run SinglePass for all models at several sampling ratios
+     * @param path   path to the input graph file
+     * @param delim  delimeter used in the input graph file
+     * @param ratios sampling ratios in (0,1]
+     * @param confidence confidence level of the intervals in (0,1)
+     * @param seed   seed of the edge hash
+     * @return   results of the basic model followed by those of the triangle and overall models for each ratio
+     * @throws IOException
+     */
+    public static List<Result> run(String path, String delim, double[] ratios, double confidence, long seed) throws IOException {
+
+        double maxRatio = 0;
+        for(double ratio : ratios) {
+            if(ratio <= 0 || ratio > 1) {
+                throw new IllegalArgumentException("sampling ratio should be in (0,1]: " + ratio);
+            }
+            maxRatio = Math.max(maxRatio, ratio);
+        }
+
+        //Step 1. (Streaming). keep the sample of the largest ratio and compute $n$ and $m$ in each shard, then merge them.
+        final double sampleRatio = maxRatio;
+        final SinglePass.Shard[] shards = SinglePass.scan(path, delim, () -> edge -> hash(edge, seed) < sampleRatio,
+                Parallel.defaultThreads());
+        final LongArrayList sample = new LongArrayList();
+        int maxIndex = 0; // max vertex index
+        int minIndex = Integer.MAX_VALUE; // min vertex index
+        long m = 0; // number of edges
+        for(SinglePass.Shard shard : shards) {
+            sample.addAll(shard.sample);
+            maxIndex = Math.max(maxIndex, shard.maxIndex);
+            minIndex = Math.min(minIndex, shard.minIndex);
+            m += shard.m;
+        }
+        final long n = maxIndex - minIndex;
+
+        final double z = new NormalDistribution().inverseCumulativeProbability(0.5 + confidence / 2);
+        final List<Result> results = new ArrayList<Result>();
+        final double basic = SinglePass.estimate(SinglePass.MODEL_BASIC, n, m, 0);
+        results.add(new Result(SinglePass.MODEL_BASIC, 1.0, 0, 0, basic, basic, basic));
+
+        //Step 2. estimate the number of triangles and degeneracy for each ratio
+        for(double ratio : ratios) {
+            final long[] stats = countTriangles(sample, ratio, seed);
+            final double p = ratio;
+            final double triangles = stats[0] / (p * p * p);
+            final double pairs = stats[1] / (p * p * p * p * p);
+            final double variance = triangles * (1 / (p * p * p) - 1) + 2 * pairs * (1 / p - 1);
+            final double stdError = Math.sqrt(Math.max(0, variance));
+            final long lowerDelta = (long) Math.max(0, triangles - z * stdError);
+            final long upperDelta = (long) (triangles + z * stdError);
+            for(int model : new int[]{SinglePass.MODEL_TRIANGLE, SinglePass.MODEL_OVERALL}) {
+                results.add(new Result(model, ratio, triangles, stdError,
+                        SinglePass.estimate(model, n, m, (long) triangles),
+                        SinglePass.estimate(model, n, m, lowerDelta),
+                        SinglePass.estimate(model, n, m, upperDelta)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return number of triangles and number of pairs of triangles sharing an edge in the sample of the given ratio
+     */
+    private static long[] countTriangles(LongArrayList sample, double ratio, long seed) {
+        final Int2IntOpenHashMap nodeToIndex = new Int2IntOpenHashMap();
+        final LongArrayList arcs = new LongArrayList();
+        for(int i=0; i<sample.size(); i++) {
+            final long edge = sample.getLong(i);
+            if(hash(edge, seed) >= ratio) {
+                continue;
+            }
+            final int src = (int) (edge >> 32);
+            final int trg = (int) edge;
+            if(!nodeToIndex.containsKey(src)) {
+                nodeToIndex.put(src, nodeToIndex.size());
+            }
+            if(!nodeToIndex.containsKey(trg)) {
+                nodeToIndex.put(trg, nodeToIndex.size());
+            }
+            arcs.add(((long) nodeToIndex.get(src) << 32) | nodeToIndex.get(trg));
+        }
+        final int sampledNodeNum = nodeToIndex.size();
+        final int[] nodeToDegree = new int[sampledNodeNum];
+        for(int i=0; i<arcs.size(); i++) {
+            nodeToDegree[(int) (arcs.getLong(i) >> 32)]++;
+        }
+        final int[][] sampledGraph = new int[sampledNodeNum][];
+        for(int i=0; i<sampledNodeNum; i++) {
+            sampledGraph[i] = new int[nodeToDegree[i]];
+        }
+        for(int i=0; i<arcs.size(); i++) {
+            final int src = (int) (arcs.getLong(i) >> 32);
+            sampledGraph[src][--nodeToDegree[src]] = (int) arcs.getLong(i);
+        }
+
+        final int threads = Parallel.defaultThreads();
+        final EdgeIndex index = EdgeIndex.build(TriangleCount.symmetrize(sampledGraph, threads));
+        final int[] sups = EdgeSupport.run(index, threads);
+        long supSum = 0;
+        long pairs = 0;
+        for(int sup : sups) {
+            supSum += sup;
+            pairs += (long) sup * (sup - 1) / 2;
+        }
+        return new long[]{supSum / 3, pairs};
+    }
+
+    /**
+     * @return pseudo-random value in [0, 1) determined by an edge and a seed
+     */
+    static double hash(long edge, long seed) {
+        return (mix(edge * 0x9E3779B97F4A7C15L + mix(seed)) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * print results as a table
+     * @param results    results of {@link #run}
+     * @param confidence confidence level of the intervals
+     */
+    public static void print(List<Result> results, double confidence) {
+        final int percent = (int) Math.round(confidence * 100);
+        System.out.println("model\tsampling_ratio\testimated_triangles\tstd_error\testimated_degeneracy\tlower_" + percent + "\tupper_" + percent);
+        for(Result result : results) {
+            System.out.println(MODEL_NAMES[result.model] + "\t" + (result.model == SinglePass.MODEL_BASIC ? "-" : String.valueOf(result.ratio))
+                    + "\t" + (long) result.triangles + "\t" + result.stdError + "\t" + result.estimate + "\t" + result.lower + "\t" + result.upper);
+        }
+    }
+
+    /**
+     * @param text  comma-separated sampling ratios
+     * @return sampling ratios in increasing order
+     */
+    static double[] parseRatios(String text) {
+        final String[] tokens = text.split(",");
+        final double[] ratios = new double[tokens.length];
+        for(int i=0; i<tokens.length; i++) {
+            ratios[i] = Double.valueOf(tokens[i].trim());
+        }
+        Arrays.sort(ratios);
+        return ratios;
+    }
+}
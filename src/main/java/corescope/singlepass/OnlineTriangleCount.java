@@ -0,0 +1,250 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope.singlepass;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Online estimation of the number of triangles in an edge stream
+ *
+ * When an edge (u, v) arrives, the common neighbors of u and v in the current sample close triangles, each of which
+ * is added to the estimate with the inverse of the probability that its other two edges are in the sample. Then the
+ * edge is sampled. Two sampling schemes are supported:
+ * Bernoulli sampling with probability p (MASCOT, Lim and Kang), where each triangle is weighted by 1/p^2, and
+ * a reservoir of at most M edges (TRIEST-IMPR, De Stefani et al.), where each triangle found at time t is weighted by
+ * max(1, (t-1)(t-2)/(M(M-1))). Both estimates are unbiased and available at any point of the stream.
+ * The sample is kept only as adjacency sets keyed by the original vertex IDs; the reservoir also keeps its edges in
+ * slots so that a random one can be replaced.
+ */
+public class OnlineTriangleCount {
+
+    private final Random random;
+
+    /**
+     * sampling probability (Bernoulli sampling), or 0
+     */
+    private final double p;
+
+    /**
+     * maximum number of sampled edges (reservoir sampling), or 0
+     */
+    private final int budget;
+
+    /**
+     * vertex ID -> sampled neighbors
+     */
+    private final Int2ObjectOpenHashMap<IntOpenHashSet> sample = new Int2ObjectOpenHashMap<IntOpenHashSet>();
+
+    /**
+     * sampled edges, (src, trg) in the upper and lower 32 bits (reservoir sampling only)
+     */
+    private long[] slots;
+
+    private int sampleSize = 0;
+
+    private double triangles = 0;
+
+    private long edgeNum = 0;
+
+    /**
+     * number of edges offered to the sample (edges other than self-loops and sampled duplicates)
+     */
+    private long offeredNum = 0;
+
+    private int maxIndex = 0; // max vertex index
+
+    private int minIndex = Integer.MAX_VALUE; // min vertex index
+
+    private OnlineTriangleCount(double p, int budget, Random random) {
+        this.p = p;
+        this.budget = budget;
+        this.random = random;
+        this.slots = budget > 0 ? new long[Math.min(budget, 1 << 16)] : null;
+    }
+
+    /**
+     * @param p sampling probability in (0, 1]
+     * @param random    random number generator
+     * @return estimator sampling each edge independently with probability p
+     */
+    public static OnlineTriangleCount bernoulli(double p, Random random) {
+        if(p <= 0 || p > 1) {
+            throw new IllegalArgumentException("sampling ratio should be in (0,1]: " + p);
+        }
+        return new OnlineTriangleCount(p, 0, random);
+    }
+
+    /**
+     * @param budget    maximum number of sampled edges (at least 2)
+     * @param random    random number generator
+     * @return estimator keeping a uniform reservoir of at most budget edges
+     */
+    public static OnlineTriangleCount reservoir(int budget, Random random) {
+        if(budget < 2) {
+            throw new IllegalArgumentException("budget should be at least 2: " + budget);
+        }
+        return new OnlineTriangleCount(0, budget, random);
+    }
+
+    /**
+     * process the next edge of the stream
+     * @param src   endpoint
+     * @param trg   other endpoint
+     */
+    public void add(int src, int trg) {
+        edgeNum++;
+        maxIndex = Math.max(trg, Math.max(src, maxIndex));
+        minIndex = Math.min(trg, Math.min(src, minIndex));
+        if(src == trg || contains(src, trg)) {
+            return;
+        }
+        offeredNum++;
+
+        final int common = countCommon(src, trg);
+        if(common > 0) {
+            final double weight;
+            if(budget == 0) {
+                weight = 1.0 / p / p;
+            }
+            else {
+                final double t = offeredNum;
+                weight = Math.max(1.0, (t - 1) / budget * (t - 2) / (budget - 1));
+            }
+            triangles += common * weight;
+        }
+
+        if(budget == 0) {
+            if(random.nextDouble() < p) {
+                insert(src, trg);
+                sampleSize++;
+            }
+        }
+        else if(sampleSize < budget) {
+            if(sampleSize == slots.length) {
+                slots = Arrays.copyOf(slots, (int) Math.min(budget, 2L * sampleSize));
+            }
+            slots[sampleSize++] = encode(src, trg);
+            insert(src, trg);
+        }
+        else {
+            final long j = (long) (random.nextDouble() * offeredNum);
+            if(j < budget) {
+                final long old = slots[(int) j];
+                remove((int) (old >> 32), (int) old);
+                slots[(int) j] = encode(src, trg);
+                insert(src, trg);
+            }
+        }
+    }
+
+    /**
+     * @return estimated number of triangles in the stream so far
+     */
+    public double getTriangles() {
+        return triangles;
+    }
+
+    /**
+     * @return number of edges in the stream so far
+     */
+    public long getEdgeNum() {
+        return edgeNum;
+    }
+
+    /**
+     * @return number of vertices estimated from the range of vertex IDs, as in {@link SinglePass#run}
+     */
+    public long getNodeNum() {
+        return edgeNum == 0 ? 0 : (long) maxIndex - minIndex;
+    }
+
+    /**
+     * @return number of sampled edges
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * @param model one of SinglePass.MODEL_BASIC, MODEL_TRIANGLE, and MODEL_OVERALL
+     * @return degeneracy estimated from the stream so far
+     */
+    public double estimate(int model) {
+        return SinglePass.estimate(model, getNodeNum(), edgeNum, (long) triangles);
+    }
+
+    private int countCommon(int src, int trg) {
+        IntOpenHashSet small = sample.get(src);
+        IntOpenHashSet large = sample.get(trg);
+        if(small == null || large == null) {
+            return 0;
+        }
+        if(small.size() > large.size()) {
+            final IntOpenHashSet temp = small;
+            small = large;
+            large = temp;
+        }
+        int count = 0;
+        final IntIterator it = small.iterator();
+        while(it.hasNext()) {
+            if(large.contains(it.nextInt())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean contains(int src, int trg) {
+        final IntOpenHashSet neighbors = sample.get(src);
+        return neighbors != null && neighbors.contains(trg);
+    }
+
+    private void insert(int src, int trg) {
+        neighbors(src).add(trg);
+        neighbors(trg).add(src);
+    }
+
+    private IntOpenHashSet neighbors(int v) {
+        IntOpenHashSet neighbors = sample.get(v);
+        if(neighbors == null) {
+            neighbors = new IntOpenHashSet(4);
+            sample.put(v, neighbors);
+        }
+        return neighbors;
+    }
+
+    private void remove(int src, int trg) {
+        removeNeighbor(src, trg);
+        removeNeighbor(trg, src);
+    }
+
+    private void removeNeighbor(int v, int u) {
+        final IntOpenHashSet neighbors = sample.get(v);
+        neighbors.remove(u);
+        if(neighbors.isEmpty()) {
+            sample.remove(v);
+        }
+    }
+
+    private static long encode(int src, int trg) {
+        return ((long) src << 32) | (trg & 0xFFFFFFFFL);
+    }
+}
@@ -17,11 +17,20 @@ package corescope.singlepass;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 
+import corescope.EdgeScanner;
+import corescope.Parallel;
+
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
 
 /**
  * Single pass streaming algorithm for estimating degeneracy
@@ -31,17 +40,24 @@ public class SinglePass {
 
     /**
      * Main function
-     * @param args  input_path, model, sampling_ratio
+     * @param args  input_path, model, [bernoulli|mascot] sampling_ratio or input_path, model, reservoir|triest, budget
+     *              or input_path, all, sampling_ratios, [confidence]
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
-        if(args.length != 3) {
+        if(args.length != 3 && args.length != 4) {
             printError();
             System.exit(-1);
         }
 
         final String input = args[0];
         final String delim = "\t";
+        if(args[1].compareToIgnoreCase("ALL")==0) {
+            final double[] ratios = MultiRate.parseRatios(args[2]);
+            final double confidence = args.length == 4 ? Double.valueOf(args[3]) : 0.95;
+            MultiRate.print(MultiRate.run(input, delim, ratios, confidence, new Random().nextLong()), confidence);
+            return;
+        }
         int model = 0;
         if(args[1].compareToIgnoreCase("BASIC")==0) {
             model = MODEL_BASIC;
@@ -57,15 +73,40 @@ public class SinglePass {
             printError();
             System.exit(-1);
         }
-        final double p  = Double.valueOf(args[2]);
+        if(args.length == 4 && args[2].compareToIgnoreCase("RESERVOIR") == 0) {
+            final int budget = Integer.valueOf(args[3]);
+            System.out.println("Estimated degeneray: "+runReservoir(input, delim, model, budget));
+            return;
+        }
+        if(args.length == 4 && args[2].compareToIgnoreCase("MASCOT") == 0) {
+            final OnlineTriangleCount estimator = OnlineTriangleCount.bernoulli(Double.valueOf(args[3]), new Random());
+            System.out.println("Estimated degeneray: "+runOnline(input, delim, model, estimator, true));
+            return;
+        }
+        if(args.length == 4 && args[2].compareToIgnoreCase("TRIEST") == 0) {
+            final OnlineTriangleCount estimator = OnlineTriangleCount.reservoir(Integer.valueOf(args[3]), new Random());
+            System.out.println("Estimated degeneray: "+runOnline(input, delim, model, estimator, true));
+            return;
+        }
+        if(args.length == 4 && args[2].compareToIgnoreCase("BERNOULLI") != 0) {
+            System.err.println("Unknown Sampling Mode Error");
+            printError();
+            System.exit(-1);
+        }
+        final double p  = Double.valueOf(args[args.length - 1]);
 
         System.out.println("Estimated degeneray: "+run(input, delim, model, p));
     }
 
     private static void printError() {
-        System.err.println("Usage: run_coreD.sh input_path model sampling_ratio");
+        System.err.println("Usage: run_coreD.sh input_path model [bernoulli|mascot] sampling_ratio");
+        System.err.println("   or: run_coreD.sh input_path model reservoir|triest budget");
+        System.err.println("   or: run_coreD.sh input_path all sampling_ratios [confidence]");
+        System.err.println("mascot and triest estimate triangles online as edges arrive, without materializing the sample");
+        System.err.println("all evaluates every model at comma-separated sampling_ratios in one pass with confidence intervals (default confidence: 0.95)");
         System.err.println("Model should be one of [basic, triangle, overall]");
         System.err.println("Sampling_ratio should be in (0,1]");
+        System.err.println("Budget: maximum number of sampled edges kept in memory (at least 3)");
     }
 
     /**
@@ -92,59 +133,62 @@ public class SinglePass {
      * @throws IOException
      */
     public static double run(String path, String delim, final int model, double p) throws IOException {
+        return run(path, delim, model, p, Parallel.defaultThreads());
+    }
 
-        final Random random = new Random();
-
-        //Step 1. (Streaming). sample edges and compute $n$ and $m$.
-        final BufferedReader br = new BufferedReader(new FileReader(path));
-        final int lengthOfArray = 10000;
-        LinkedList<LongArrayList> listOfArrays = new LinkedList<LongArrayList>();
-        LongArrayList array = new LongArrayList(lengthOfArray);
-        Int2IntOpenHashMap nodeToIndex = new Int2IntOpenHashMap();
+    /**
+     * run SinglePass, scanning byte ranges of the input file in parallel
+     * @param path   path to the input graph file
+     * @param delim  delimeter used in the input graph file
+     * @param p  sampling ratio
+     * @param threads    number of threads
+     * @return   estimated degeneracy
+     * @throws IOException
+     */
+    public static double run(String path, String delim, final int model, final double p, final int threads) throws IOException {
 
+        //Step 1. (Streaming). sample edges and compute $n$ and $m$ in each shard, then merge them.
+        final Random seeds = new Random();
+        final Shard[] shards = scan(path, delim, model == MODEL_BASIC ? null : () -> {
+            final Random random = new Random(seeds.nextLong());
+            return edge -> random.nextDouble() < p;
+        }, threads);
         int maxIndex = 0; // max vertex index
         int minIndex = Integer.MAX_VALUE; // min vertex index
         long n = 0; // number of vertices
         long m = 0; // number of edges
-        int indexInArray = 0;
-        while(true) {
-            String line = br.readLine();
-            if(line == null) {
-                break;
-            }
-            String[] tokens = line.split(delim);
-            int src = Integer.valueOf(tokens[0]);
-            int trg = Integer.valueOf(tokens[1]);
-            if(src > trg) {
-                continue;
-            }
-            else if(random.nextDouble() < p) {
+        for(Shard shard : shards) {
+            maxIndex = Math.max(maxIndex, shard.maxIndex);
+            minIndex = Math.min(minIndex, shard.minIndex);
+            m += shard.m;
+        }
+        n = maxIndex - minIndex;
+
+
+        // Step 1'. (Basic model Only)
+        if(model == MODEL_BASIC) {
+            return estimate(model, n, m, 0);
+        }
+
+        // index vertices in the order of their first appearance in the stream
+        LinkedList<LongArrayList> listOfArrays = new LinkedList<LongArrayList>();
+        Int2IntOpenHashMap nodeToIndex = new Int2IntOpenHashMap();
+        for(Shard shard : shards) {
+            final LongArrayList array = shard.sample;
+            for(int i=0; i<array.size(); i++) {
+                final long edge = array.getLong(i);
+                final int src = (int) (edge >> 32);
+                final int trg = (int) edge;
                 if(!nodeToIndex.containsKey(src)) {
                     nodeToIndex.put(src, nodeToIndex.size());
                 }
                 if(!nodeToIndex.containsKey(trg)) {
                     nodeToIndex.put(trg, nodeToIndex.size());
                 }
-                array.add(nodeToIndex.get(src) * ((long)Integer.MAX_VALUE) + nodeToIndex.get(trg));
-                indexInArray++;
-                if(indexInArray == lengthOfArray) {
-                    listOfArrays.add(array);
-                    array = new LongArrayList(lengthOfArray);
-                    indexInArray = 0;
-                }
+                array.set(i, nodeToIndex.get(src) * ((long)Integer.MAX_VALUE) + nodeToIndex.get(trg));
             }
-            maxIndex = Math.max(trg, Math.max(src, maxIndex));
-            minIndex = Math.min(trg, Math.min(src, minIndex));
-            m++;
-        }
-        br.readLine();
-        listOfArrays.add(array);
-        n = maxIndex - minIndex;
-
-
-        // Step 1'. (Basic model Only)
-        if(model == MODEL_BASIC) {
-            return Math.pow(10, -0.34693 * Math.log10(n) + 0.61782 * Math.log10(m) + -0.032516);
+            listOfArrays.add(array);
+            shard.sample = null;
         }
 
         //Step 2. load a sampled graph in memory
@@ -183,7 +227,269 @@ public class SinglePass {
         final long delta = p >= 1.0 ? sampleCount : (long) (sampleCount / p / p / p);
 
         //Step 4. Estimate degeneracy
-        if(model == MODEL_TRIANGLE) {
+        return estimate(model, n, m, delta);
+    }
+
+    /**
+     * run SinglePass with a uniform reservoir of a fixed number of edges instead of Bernoulli sampling
+     * @param path   path to the input graph file
+     * @param delim  delimeter used in the input graph file
+     * @param budget maximum number of sampled edges (at least 3)
+     * @return   estimated degeneracy
+     * @throws IOException
+     */
+    public static double runReservoir(String path, String delim, final int model, final int budget) throws IOException {
+
+        if(budget < 3) {
+            throw new IllegalArgumentException("budget should be at least 3: " + budget);
+        }
+
+        final Random random = new Random();
+
+        //Step 1. (Streaming). keep a uniform sample of at most budget edges (Vitter's algorithm R) and compute $n$ and $m$.
+        final ReservoirSampler sampler = new ReservoirSampler(budget, model != MODEL_BASIC, random);
+        scan(path, delim, sampler);
+        long[] reservoir = sampler.reservoir;
+        final int size = sampler.size;
+        final int maxIndex = sampler.maxIndex;
+        final int minIndex = sampler.minIndex;
+        final long m = sampler.m;
+        final long n = maxIndex - minIndex;
+
+        if(model == MODEL_BASIC) {
+            return estimate(model, n, m, 0);
+        }
+
+        //Step 2. load the reservoir in memory
+        final Int2IntOpenHashMap nodeToIndex = new Int2IntOpenHashMap();
+        final int[] srcs = new int[size];
+        final int[] trgs = new int[size];
+        for(int i=0; i<size; i++) {
+            final int src = (int) (reservoir[i] >> 32);
+            final int trg = (int) reservoir[i];
+            if(!nodeToIndex.containsKey(src)) {
+                nodeToIndex.put(src, nodeToIndex.size());
+            }
+            if(!nodeToIndex.containsKey(trg)) {
+                nodeToIndex.put(trg, nodeToIndex.size());
+            }
+            srcs[i] = nodeToIndex.get(src);
+            trgs[i] = nodeToIndex.get(trg);
+        }
+        reservoir = null;
+        final int sampledNodeNum = nodeToIndex.size();
+        final int[] nodeToDegree = new int[sampledNodeNum];
+        for(int i=0; i<size; i++) {
+            nodeToDegree[srcs[i]]++;
+        }
+        final int[][] sampledGraph = new int[sampledNodeNum][];
+        for(int i=0; i<sampledNodeNum; i++) {
+            if(nodeToDegree[i] > 0) {
+                sampledGraph[i] = new int[nodeToDegree[i]];
+            }
+        }
+        for(int i=0; i<size; i++) {
+            sampledGraph[srcs[i]][--nodeToDegree[srcs[i]]] = trgs[i];
+        }
+
+        //Step 3. Estimate the number of triangles; a triangle is in the reservoir with probability M(M-1)(M-2)/(m(m-1)(m-2))
+        final long sampleCount = TriangleCount.run(sampledGraph);
+        final double scale = m <= size ? 1.0 : ((double) m / size) * ((double) (m - 1) / (size - 1)) * ((double) (m - 2) / (size - 2));
+        final long delta = (long) (sampleCount * scale);
+
+        //Step 4. Estimate degeneracy
+        return estimate(model, n, m, delta);
+    }
+
+    /**
+     * run SinglePass with an online triangle estimator that is updated as each edge arrives
+     * @param path   path to the input graph file
+     * @param delim  delimeter used in the input graph file
+     * @param estimator  online triangle estimator, which receives the edges of the stream
+     * @param verbose    whether to print the estimate every REPORT_INTERVAL edges
+     * @return   estimated degeneracy
+     * @throws IOException
+     */
+    public static double runOnline(String path, String delim, final int model, final OnlineTriangleCount estimator, final boolean verbose) throws IOException {
+        scan(path, delim, (src, trg) -> {
+            if(src > trg) {
+                return;
+            }
+            estimator.add(src, trg);
+            if(verbose && estimator.getEdgeNum() % REPORT_INTERVAL == 0) {
+                System.err.println("Edges: " + estimator.getEdgeNum() + ", sampled edges: " + estimator.getSampleSize()
+                        + ", estimated triangles: " + (long) estimator.getTriangles() + ", estimated degeneracy: " + estimator.estimate(model));
+            }
+        });
+        return estimator.estimate(model);
+    }
+
+    /**
+     * Uniform sample of at most budget edges of a stream (Vitter's algorithm R) with the counters of the stream
+     */
+    private static final class ReservoirSampler implements EdgeScanner.Visitor {
+
+        private final int budget;
+
+        private final boolean sampling;
+
+        private final Random random;
+
+        /**
+         * sampled edges, (src, trg) in the upper and lower 32 bits
+         */
+        private long[] reservoir;
+
+        private int size = 0;
+
+        private int maxIndex = 0; // max vertex index
+
+        private int minIndex = Integer.MAX_VALUE; // min vertex index
+
+        private long m = 0; // number of edges
+
+        ReservoirSampler(int budget, boolean sampling, Random random) {
+            this.budget = budget;
+            this.sampling = sampling;
+            this.random = random;
+            this.reservoir = new long[Math.min(budget, 1 << 16)];
+        }
+
+        @Override
+        public void edge(int src, int trg) {
+            if(src > trg) {
+                return;
+            }
+            m++;
+            if(sampling) {
+                final long edge = ((long) src << 32) | (trg & 0xFFFFFFFFL);
+                if(size < budget) {
+                    if(size == reservoir.length) {
+                        reservoir = Arrays.copyOf(reservoir, (int) Math.min(budget, 2L * size));
+                    }
+                    reservoir[size++] = edge;
+                }
+                else {
+                    final long j = (long) (random.nextDouble() * m);
+                    if(j < budget) {
+                        reservoir[(int) j] = edge;
+                    }
+                }
+            }
+            maxIndex = Math.max(trg, Math.max(src, maxIndex));
+            minIndex = Math.min(trg, Math.min(src, minIndex));
+        }
+    }
+
+    /**
+     * Edges sampled from a byte range of the input file with its own sampler and counters
+     */
+    static final class Shard implements EdgeScanner.Visitor {
+
+        /**
+         * decides whether an edge, (src, trg) in the upper and lower 32 bits, is sampled (null to sample none)
+         */
+        private final LongPredicate sampler;
+
+        /**
+         * sampled edges, (src, trg) in the upper and lower 32 bits
+         */
+        LongArrayList sample = new LongArrayList();
+
+        int maxIndex = 0;
+
+        int minIndex = Integer.MAX_VALUE;
+
+        long m = 0;
+
+        Shard(LongPredicate sampler) {
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void edge(int src, int trg) {
+            if(src > trg) {
+                return;
+            }
+            final long edge = ((long) src << 32) | trg;
+            if(sampler != null && sampler.test(edge)) {
+                sample.add(edge);
+            }
+            maxIndex = Math.max(trg, Math.max(src, maxIndex));
+            minIndex = Math.min(trg, Math.min(src, minIndex));
+            m++;
+        }
+    }
+
+    /**
+     * sample edges from byte ranges of a file in parallel
+     * @param path   path to the input graph file
+     * @param delim  delimeter used in the input graph file
+     * @param samplers  supplies the sampler of each shard (null to only count edges)
+     * @param threads    number of threads
+     * @return   shards in the order of the byte ranges
+     * @throws IOException
+     */
+    static Shard[] scan(String path, String delim, final Supplier<LongPredicate> samplers, final int threads) throws IOException {
+        final byte delimByte = EdgeScanner.toByte(delim);
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            final long[] boundaries = EdgeScanner.split(channel, threads * 4);
+            final Shard[] shards = new Shard[boundaries.length - 1];
+            final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            for(int i=0; i<shards.length; i++) {
+                final int chunk = i;
+                shards[chunk] = new Shard(samplers == null ? null : samplers.get());
+                tasks.add(() -> {
+                    EdgeScanner.scan(channel, boundaries[chunk], boundaries[chunk + 1], delimByte, shards[chunk], false);
+                    return null;
+                });
+            }
+            Parallel.invokeAll(pool, tasks);
+            return shards;
+        } finally {
+            file.close();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * parse the edges of a file in the order of lines
+     * @param path   path to the input graph file
+     * @param delim  delimeter used in the input graph file
+     * @param visitor   receives each edge
+     * @throws IOException
+     */
+    static void scan(String path, String delim, EdgeScanner.Visitor visitor) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            EdgeScanner.scan(channel, 0, channel.size(), EdgeScanner.toByte(delim), visitor, false);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * number of edges between progress reports of {@link #runOnline}
+     */
+    private static final long REPORT_INTERVAL = 1000000;
+
+    /**
+     * estimate degeneracy from graph statistics by the regression of the given model
+     * @param model  one of MODEL_BASIC, MODEL_TRIANGLE, and MODEL_OVERALL
+     * @param n  number of vertices
+     * @param m  number of edges
+     * @param delta  (estimated) number of triangles, not used by MODEL_BASIC
+     * @return   estimated degeneracy
+     */
+    public static double estimate(final int model, final long n, final long m, final long delta) {
+        if(model == MODEL_BASIC) {
+            return Math.pow(10, -0.34693 * Math.log10(n) + 0.61782 * Math.log10(m) + -0.032516);
+        }
+        else if(model == MODEL_TRIANGLE) {
             return Math.pow(10, 0.31542 * Math.log10(delta) -0.1994);
         }
         else if(model == MODEL_OVERALL){
@@ -0,0 +1,388 @@
+/* =================================================================================
+ *
+ * CoreScope: Graph Mining Using k-Core Analysis - Patterns, Anomalies, and Algorithms
+ * Authors: Kijung Shin, Tina Eliassi-Rad, and Christos Faloutsos
+ *
+ * Version: 2.0
+ * Date: Mar 9, 2017
+ * Main Contact: Kijung Shin (kijungs@cs.cmu.edu)
+ *
+ * This software is free of charge under research purposes.
+ * For commercial purposes, please contact the author.
+ *
+ * =================================================================================
+ */
+
+package corescope.singlepass;
+
+import corescope.EdgeScanner;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * SinglePass over a sliding time window of a timestamped edge stream
+ *
+ * The window at report time T holds the edges that arrived in [T - window, T). Repeated edges are merged, and an edge
+ * stays in the window until its latest arrival expires. An edge is sampled if a hash of its endpoints is less than the
+ * sampling ratio p, so the sample is a Bernoulli sample of the distinct edges in the window. The number of triangles
+ * in the sample is updated whenever an edge enters or leaves it, and the number of triangles and edges in the window
+ * are estimated by T_s/p^3 and m_s/p. The range of vertex IDs is kept per report interval. Sampled edges are evicted
+ * as soon as they leave the window, so only edges still in the window count towards the budget. If the sample exceeds
+ * the budget, p is halved and the edges whose hash is at least the new ratio are dropped; p is never raised again, since
+ * unsampled edges still in the window cannot be recovered.
+ */
+public class SlidingWindow {
+
+    /**
+     * length of the window
+     */
+    private final long window;
+
+    /**
+     * time between reports
+     */
+    private final long interval;
+
+    /**
+     * maximum number of sampled edges
+     */
+    private final int budget;
+
+    private final long seed;
+
+    private double p;
+
+    /**
+     * vertex ID -> sampled neighbors
+     */
+    private final Int2ObjectOpenHashMap<IntOpenHashSet> sample = new Int2ObjectOpenHashMap<IntOpenHashSet>();
+
+    /**
+     * sampled edge -> time of its latest arrival
+     */
+    private final Long2LongOpenHashMap lastArrival = new Long2LongOpenHashMap();
+
+    /**
+     * arrivals of sampled edges in the order of time; an arrival is stale if the edge arrived again later
+     */
+    private final LongArrayFIFOQueue arrivalEdges = new LongArrayFIFOQueue();
+
+    private final LongArrayFIFOQueue arrivalTimes = new LongArrayFIFOQueue();
+
+    /**
+     * number of triangles in the sample
+     */
+    private long sampleTriangles = 0;
+
+    /**
+     * min and max vertex IDs of the edges arrived in each report interval, in a ring indexed by interval
+     */
+    private final long[] bucketIds;
+
+    private final int[] bucketMin;
+
+    private final int[] bucketMax;
+
+    private boolean started = false;
+
+    private long startTime;
+
+    private long now;
+
+    private long nextReport;
+
+    /**
+     * @param p sampling ratio in (0,1]
+     * @param window    length of the window
+     * @param interval  time between reports
+     * @param budget    maximum number of sampled edges (at least 3)
+     * @param seed  seed of the edge hash
+     */
+    public SlidingWindow(double p, long window, long interval, int budget, long seed) {
+        if(p <= 0 || p > 1) {
+            throw new IllegalArgumentException("sampling ratio should be in (0,1]: " + p);
+        }
+        if(window <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("window and interval should be positive");
+        }
+        if(budget < 3) {
+            throw new IllegalArgumentException("budget should be at least 3: " + budget);
+        }
+        this.p = p;
+        this.window = window;
+        this.interval = interval;
+        this.budget = budget;
+        this.seed = seed;
+        final int buckets = (int) ((window + interval - 1) / interval) + 1;
+        this.bucketIds = new long[buckets];
+        this.bucketMin = new int[buckets];
+        this.bucketMax = new int[buckets];
+        Arrays.fill(bucketIds, -1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 4 && args.length != 5) {
+            printError();
+            System.exit(-1);
+        }
+
+        final String input = args[0];
+        final String delim = "\t";
+        final double p = Double.valueOf(args[1]);
+        final long window = Long.valueOf(args[2]);
+        final long interval = Long.valueOf(args[3]);
+        final int budget = args.length == 5 ? Integer.valueOf(args[4]) : Integer.MAX_VALUE;
+
+        final SlidingWindow monitor = new SlidingWindow(p, window, interval, budget, new Random().nextLong());
+        System.out.println("time\tsampling_ratio\tsampled_edges\testimated_edges\testimated_triangles\tbasic\ttriangle\toverall");
+        monitor.run(input, delim);
+    }
+
+    private static void printError() {
+        System.err.println("Usage: run_coreD_window.sh input_path sampling_ratio window report_interval [budget]");
+        System.err.println("Each line of the input should be 'source<TAB>target<TAB>timestamp' in the order of time");
+        System.err.println("Lines starting with '#', '%' or '//' are ignored");
+        System.err.println("Sampling_ratio should be in (0,1]");
+        System.err.println("Window and report_interval are in the unit of the timestamps");
+        System.err.println("Budget: maximum number of sampled edges kept in memory (at least 3, default: unlimited)");
+    }
+
+    /**
+     * process a timestamped edge stream, printing a report at the end of each interval and at the end of the stream
+     * @param path   path to the input graph file
+     * @param delim  delimeter used in the input graph file
+     * @throws IOException
+     */
+    public void run(String path, String delim) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            EdgeScanner.scanTimed(channel, 0, channel.size(), EdgeScanner.toByte(delim), (src, trg, time) -> {
+                advance(time);
+                add(src, trg);
+            }, false);
+        } finally {
+            file.close();
+        }
+        if(started) {
+            report();
+        }
+    }
+
+    /**
+     * move the clock forward, printing the reports due before the given time
+     * @param time  current time; earlier times are treated as the current time
+     */
+    public void advance(long time) {
+        if(!started) {
+            started = true;
+            startTime = time;
+            now = time;
+            nextReport = time + interval;
+        }
+        now = Math.max(now, time);
+        while(nextReport <= now) {
+            report();
+            nextReport += interval;
+        }
+    }
+
+    /**
+     * process an edge arrived at the current time
+     * @param src   endpoint
+     * @param trg   other endpoint
+     */
+    public void add(int src, int trg) {
+        if(src == trg) {
+            return;
+        }
+        if(src > trg) {
+            final int temp = src;
+            src = trg;
+            trg = temp;
+        }
+
+        final long bucket = (now - startTime) / interval;
+        final int slot = (int) (bucket % bucketIds.length);
+        if(bucketIds[slot] != bucket) {
+            bucketIds[slot] = bucket;
+            bucketMin[slot] = src;
+            bucketMax[slot] = trg;
+        }
+        else {
+            bucketMin[slot] = Math.min(bucketMin[slot], src);
+            bucketMax[slot] = Math.max(bucketMax[slot], trg);
+        }
+
+        final long edge = ((long) src << 32) | (trg & 0xFFFFFFFFL);
+        if(MultiRate.hash(edge, seed) >= p) {
+            return;
+        }
+        if(!lastArrival.containsKey(edge)) {
+            sampleTriangles += countCommon(src, trg);
+            insert(src, trg);
+        }
+        lastArrival.put(edge, now);
+        arrivalEdges.enqueue(edge);
+        arrivalTimes.enqueue(now);
+        if(arrivalTimes.size() > 2 * lastArrival.size() + 16) {
+            compact();
+        }
+
+        expire(now - window);
+        while(lastArrival.size() > budget) {
+            shrink();
+        }
+    }
+
+    /**
+     * drop the sampled edges arrived before the given time
+     */
+    private void expire(long time) {
+        while(!arrivalTimes.isEmpty() && arrivalTimes.firstLong() < time) {
+            final long edge = arrivalEdges.dequeueLong();
+            final long arrival = arrivalTimes.dequeueLong();
+            if(lastArrival.containsKey(edge) && lastArrival.get(edge) == arrival) {
+                lastArrival.remove(edge);
+                remove(edge);
+            }
+        }
+    }
+
+    /**
+     * remove the stale arrivals from the queue, which keeps its size linear in the sample size
+     */
+    private void compact() {
+        for(int i=arrivalTimes.size(); i>0; i--) {
+            final long edge = arrivalEdges.dequeueLong();
+            final long arrival = arrivalTimes.dequeueLong();
+            if(lastArrival.containsKey(edge) && lastArrival.get(edge) == arrival) {
+                arrivalEdges.enqueue(edge);
+                arrivalTimes.enqueue(arrival);
+            }
+        }
+    }
+
+    /**
+     * halve the sampling ratio and drop the sampled edges outside the new sample
+     */
+    private void shrink() {
+        p /= 2;
+        System.err.println("Budget exceeded, sampling ratio: " + p);
+        final ObjectIterator<Long2LongMap.Entry> it = lastArrival.long2LongEntrySet().fastIterator();
+        while(it.hasNext()) {
+            final long edge = it.next().getLongKey();
+            if(MultiRate.hash(edge, seed) >= p) {
+                it.remove();
+                remove(edge);
+            }
+        }
+    }
+
+    /**
+     * expire the edges outside the window ending at the next report time and print the estimates
+     */
+    private void report() {
+        expire(nextReport - window);
+        final long last = (nextReport - startTime - 1) / interval;
+        final long first = Math.floorDiv(nextReport - window - startTime, interval);
+        int minIndex = Integer.MAX_VALUE;
+        int maxIndex = 0;
+        for(int slot=0; slot<bucketIds.length; slot++) {
+            if(bucketIds[slot] >= first && bucketIds[slot] <= last) {
+                minIndex = Math.min(minIndex, bucketMin[slot]);
+                maxIndex = Math.max(maxIndex, bucketMax[slot]);
+            }
+        }
+        final long n = minIndex == Integer.MAX_VALUE ? 0 : (long) maxIndex - minIndex;
+        final long m = (long) (lastArrival.size() / p);
+        final double triangles = sampleTriangles / (p * p * p);
+        System.out.println(nextReport + "\t" + p + "\t" + lastArrival.size() + "\t" + m + "\t" + (long) triangles
+                + "\t" + SinglePass.estimate(SinglePass.MODEL_BASIC, n, m, 0)
+                + "\t" + SinglePass.estimate(SinglePass.MODEL_TRIANGLE, n, m, (long) triangles)
+                + "\t" + SinglePass.estimate(SinglePass.MODEL_OVERALL, n, m, (long) triangles));
+    }
+
+    /**
+     * @return number of sampled edges in the window
+     */
+    public int getSampleSize() {
+        return lastArrival.size();
+    }
+
+    /**
+     * @return number of triangles in the sample
+     */
+    public long getSampleTriangles() {
+        return sampleTriangles;
+    }
+
+    /**
+     * @return current sampling ratio
+     */
+    public double getSamplingRatio() {
+        return p;
+    }
+
+    private int countCommon(int src, int trg) {
+        IntOpenHashSet small = sample.get(src);
+        IntOpenHashSet large = sample.get(trg);
+        if(small == null || large == null) {
+            return 0;
+        }
+        if(small.size() > large.size()) {
+            final IntOpenHashSet temp = small;
+            small = large;
+            large = temp;
+        }
+        int count = 0;
+        final IntIterator it = small.iterator();
+        while(it.hasNext()) {
+            if(large.contains(it.nextInt())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void insert(int src, int trg) {
+        neighbors(src).add(trg);
+        neighbors(trg).add(src);
+    }
+
+    private IntOpenHashSet neighbors(int v) {
+        IntOpenHashSet neighbors = sample.get(v);
+        if(neighbors == null) {
+            neighbors = new IntOpenHashSet(4);
+            sample.put(v, neighbors);
+        }
+        return neighbors;
+    }
+
+    private void remove(long edge) {
+        final int src = (int) (edge >> 32);
+        final int trg = (int) edge;
+        removeNeighbor(src, trg);
+        removeNeighbor(trg, src);
+        sampleTriangles -= countCommon(src, trg);
+    }
+
+    private void removeNeighbor(int v, int u) {
+        final IntOpenHashSet neighbors = sample.get(v);
+        neighbors.remove(u);
+        if(neighbors.isEmpty()) {
+            sample.remove(v);
+        }
+    }
+}
@@ -14,66 +14,165 @@
  */
 package corescope.singlepass;
 
+import corescope.EdgeSupport;
+import corescope.Import;
+import corescope.Parallel;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * In-memory Triangle Counting
+ *
+ * Edges are oriented by degree so that each triangle is counted exactly once, and vertices are processed in
+ * parallel by work-stealing tasks (see {@link EdgeSupport}). Input arrays are not modified.
  * @author Kijung Shin
  */
-class TriangleCount {
+public class TriangleCount {
 
     /**
-     * count the number of triangles in a given graph
-     * @param graph
-     * @return
+     * number of vertices handled by a single task
      */
-    public static long run(int[][] graph){
+    private static final int GRAIN = 1 << 12;
+
+    /**
+     * Main function
+     * @param ar  input_path, output_path, [delimiter], [num_threads]
+     * @throws IOException
+     */
+    public static void main(String[] ar) throws IOException {
+
+        if(ar.length < 2) {
+            printError();
+            System.exit(-1);
+        }
 
-        for(int src = 0; src<graph.length; src++) {
-            if(graph[src] != null) {
-                Arrays.sort(graph[src]);
+        final String input = ar[0];
+        final String output = ar[1];
+        String delim = "\t";
+
+        if(ar.length >= 3) {
+            if (ar[2].compareToIgnoreCase("tab") == 0) {
+                delim = "\t";
+            } else if (ar[2].compareToIgnoreCase("space") == 0){
+                delim = " ";
+            } else if(ar[2].compareToIgnoreCase("comma") == 0) {
+                delim = ",";
+            } else {
+                System.err.println("Unknown Delimeter");
+                printError();
+                System.exit(-1);
             }
         }
 
-        // number of triangles
-        long count = 0;
-        for(int src=graph.length-1; src>=0; src--) {
+        final int threads = ar.length >= 4 ? Integer.valueOf(ar[3]) : Parallel.defaultThreads();
+
+        final int[][] graph = Import.loadLarge(input, delim);
+        System.err.println("counting triangles with " + threads + " threads...");
+        final long startTime = System.currentTimeMillis();
+        final long[] perVertex = new long[graph.length];
+        final long count = EdgeSupport.countTriangles(graph, threads, perVertex);
+        System.err.println("Triangles are counted... (" + (System.currentTimeMillis() - startTime) + "ms)");
+        System.out.println("Number of triangles: " + count);
+
+        System.err.println("Exporting result... "+ output);
+        final BufferedWriter bw = new BufferedWriter(new FileWriter(output));
+        for(int i=0; i<perVertex.length; i++) {
+            bw.write(i + "\t" + perVertex[i]);
+            bw.newLine();
+        }
+        bw.close();
+        System.err.println("Result was exported.: "+ output);
+    }
+
+    private static void printError() {
+        System.err.println("Usage: run_triangle_count.sh input_path output_path [delimiter] [num_threads]");
+        System.err.println("delimiter should be one of [tab, space, comma] (default: tab)");
+        System.err.println("num_threads: number of threads (default: number of processors)");
+    }
+
+    /**
+     * count the number of triangles in a given graph
+     * @param graph  vertex index -> neighbors, unsorted and possibly listing each edge in one direction only
+     *               (null for a vertex without listed neighbors)
+     * @return number of triangles in the undirected graph
+     */
+    public static long run(int[][] graph){
+        return run(graph, Parallel.defaultThreads(), null);
+    }
 
+    /**
+     * count the number of triangles in a given graph
+     * @param graph  vertex index -> neighbors, unsorted and possibly listing each edge in one direction only
+     *               (null for a vertex without listed neighbors)
+     * @param threads   number of threads
+     * @param perVertex array of length graph.length that receives the number of triangles containing each vertex,
+     *                  or null if not needed
+     * @return number of triangles in the undirected graph
+     */
+    public static long run(int[][] graph, int threads, long[] perVertex){
+        return EdgeSupport.countTriangles(symmetrize(graph, threads), threads, perVertex);
+    }
+
+    /**
+     * @param graph  vertex index -> neighbors, unsorted and possibly listing each edge in one direction only
+     * @param threads   number of threads sorting the adjacency lists
+     * @return undirected graph (vertex index -> sorted distinct neighbors), without self-loops
+     */
+    static int[][] symmetrize(final int[][] graph, int threads) {
+        final int n = graph.length;
+        final int[] degrees = new int[n];
+        for(int src=0; src<n; src++) {
             if(graph[src] == null) {
                 continue;
             }
-
-            int srcLen = graph[src].length;
-            int[] srcNeigbors = graph[src];
             for(int trg : graph[src]) {
-                int i=0;
-                int j=0;
-
-                if(graph[trg] == null) {
-                    continue;
+                if(trg != src) {
+                    degrees[src]++;
+                    degrees[trg]++;
                 }
-
-                int trgLen = graph[trg].length;
-                int[] trgNeighbors = graph[trg];
-
-                while(i < srcLen && j < trgLen) {
-                    if(srcNeigbors[i] == trgNeighbors[j]) {
-                        count++;
-                        i++;
-                        j++;
-                    }
-                    else if(srcNeigbors[i] > trgNeighbors [j]) {
-                        j++;
+            }
+        }
+        final int[][] result = new int[n][];
+        for(int i=0; i<n; i++) {
+            result[i] = new int[degrees[i]];
+            degrees[i] = 0;
+        }
+        for(int src=0; src<n; src++) {
+            if(graph[src] == null) {
+                continue;
+            }
+            for(int trg : graph[src]) {
+                if(trg != src) {
+                    result[src][degrees[src]++] = trg;
+                    result[trg][degrees[trg]++] = src;
+                }
+            }
+        }
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Parallel.forRange(pool, 0, n, GRAIN, (from, to) -> {
+                for(int i=from; i<to; i++) {
+                    final int[] neighbors = result[i];
+                    Arrays.sort(neighbors);
+                    int size = 0;
+                    for(int j=0; j<neighbors.length; j++) {
+                        if(size == 0 || neighbors[size-1] != neighbors[j]) {
+                            neighbors[size++] = neighbors[j];
+                        }
                     }
-                    else {
-                        i++;
+                    if(size < neighbors.length) {
+                        result[i] = Arrays.copyOf(neighbors, size);
                     }
                 }
-            }
-
+            });
+        } finally {
+            pool.shutdown();
         }
-
-        return count;
+        return result;
     }
 
 }